@@ -0,0 +1,66 @@
+package com.example.datingapp;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * synthetic people for the benchmarks, same shape as users.csv (college emails,
+ * first + last names, mbti, gender, preferences) so the numbers carry over.
+ * a fixed seed keeps runs comparable
+ * @author Taha
+ */
+final class BenchData {
+
+    private static final String[] FIRST = {"Anna", "Ben", "Chloe", "Daniel", "Emma", "Felix", "Grace", "Henry",
+                                           "Isla", "Jack", "Kai", "Lucy", "Mia", "Noah", "Olivia", "Owen",
+                                           "Priya", "Quinn", "Ruby", "Sam", "Taha", "Uma", "Veronica", "Aysegul"};
+    private static final String[] LAST = {"Smith", "Nguyen", "Garcia", "Kim", "Patel", "Johnson", "Lee", "Brown",
+                                          "Lopez", "Chen", "Wilson", "Davis", "Martinez", "Clark", "Lewis"};
+    private static final String[] DOMAINS = {"@mymail.pomona.edu", "@students.pitzer.edu", "@hmc.edu",
+                                             "@scrippscollege.edu", "@cmc.edu"};
+    private static final String[] GENDERS = {"men", "women", "non-binary"};
+    private static final String[] PREFS = {"women", "men", "men, women", "women, non-binary", ""};
+    private static final char[][] LETTERS = {{'E', 'I'}, {'S', 'N'}, {'F', 'T'}, {'J', 'P'}};
+
+    static final String[] PREFIXES = {"a", "jo", "mi", "sm", "ch", "ka"};
+
+    private BenchData() {}
+
+    /**
+     * n new people, numbered from first so two batches don't share emails
+     */
+    static ArrayList<People> people(int first, int n, long seed) {
+        Random random = new Random(seed);
+        ArrayList<People> out = new ArrayList<>(n);
+        for (int i = first; i < first + n; i++) {
+            String name = FIRST[random.nextInt(FIRST.length)] + " " + LAST[random.nextInt(LAST.length)];
+            People p = new People(name, "example" + (100000 + i) + DOMAINS[random.nextInt(DOMAINS.length)]);
+            StringBuilder mbti = new StringBuilder(4);
+            for (char[] axis : LETTERS) mbti.append(axis[random.nextInt(2)]);
+            p.setMbtiSelfType(mbti.toString());
+            p.setGender(GENDERS[random.nextInt(GENDERS.length)]);
+            p.setGenderPreferencesFromString(PREFS[random.nextInt(PREFS.length)]);
+            out.add(p);
+        }
+        return out;
+    }
+
+    /**
+     * a database of n people where everyone sent about likesPerPerson romantic likes
+     * (so the mbti preferences and matches are filled in like after a csv load)
+     */
+    static AbstractMatchDatabase database(AbstractMatchDatabase db, int n, int likesPerPerson, long seed) {
+        ArrayList<People> people = people(0, n, seed);
+        db.insertAll(people);
+
+        Random random = new Random(seed + 1);
+        int count = n * likesPerPerson;
+        int[] from = new int[count];
+        int[] to = new int[count];
+        for (int i = 0; i < count; i++) {
+            from[i] = people.get(i / likesPerPerson).getId();
+            to[i] = people.get(random.nextInt(n)).getId();
+        }
+        LikeMatcher.likeAll(db.getRelationshipGraph(), from, to, count, true);
+        return db;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.datingapp;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * loading users.csv and relationshipsNew.csv into a new database, run from the repo root.
+ * bigger files can be passed in, e.g. -p usersFile=big_users.csv -p relationshipsFile=big_rel.csv
+ * @author Taha
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CsvLoadBenchmarks {
+
+    @Param({"users.csv"})
+    public String usersFile;
+
+    @Param({"relationshipsNew.csv"})
+    public String relationshipsFile;
+
+    @Benchmark
+    public MatchDatabase loadPeople() {
+        MatchDatabase db = new PeopleHashTable();
+        db.loadPeopleFromCSV(usersFile);
+        return db;
+    }
+
+    @Benchmark
+    public MatchDatabase loadPeopleAndRelationships() {
+        MatchDatabase db = new PeopleHashTable();
+        db.loadPeopleFromCSV(usersFile);
+        db.loadRelationships(relationshipsFile);
+        return db;
+    }
+}
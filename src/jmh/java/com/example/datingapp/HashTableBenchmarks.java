@@ -0,0 +1,111 @@
+package com.example.datingapp;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * the storage backends side by side: get / contains (hit and miss), insert + remove and a
+ * full build from the smallest table so every rehash is paid for. backend is quadratic
+ * (PeopleHashTable), robinhood (RobinHoodPeopleTable) or concurrent (ConcurrentPeopleTable),
+ * the same names datingapp.database.backend takes
+ * @author Taha
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashTableBenchmarks {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"quadratic", "robinhood", "concurrent"})
+    public String backend;
+
+    private AbstractMatchDatabase table;
+    private ArrayList<People> people;
+    private ArrayList<People> extra;   // never in the table, inserted and removed again
+    private String[] hits;
+    private String[] misses;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        people = BenchData.people(0, size, 1);
+        extra = BenchData.people(size, 1024, 2);
+        table = newTable();
+        table.insertAll(people);
+
+        hits = new String[1024];
+        misses = new String[1024];
+        for (int i = 0; i < hits.length; i++) {
+            // copies, so equals has to compare the chars like a request would
+            hits[i] = new String(people.get((int) ((i * 2654435761L) % size)).getEmail());
+            misses[i] = "nobody" + i + "@mymail.pomona.edu";
+        }
+    }
+
+    /**
+     * an empty table of the backend being measured, at its smallest size
+     */
+    private AbstractMatchDatabase newTable() {
+        return switch (backend) {
+            case "quadratic" -> new PeopleHashTable();
+            case "robinhood" -> new RobinHoodPeopleTable();
+            case "concurrent" -> new ConcurrentPeopleTable();
+            default -> throw new IllegalArgumentException("unknown backend: " + backend);
+        };
+    }
+
+    private int next() {
+        return cursor = (cursor + 1) & 1023;
+    }
+
+    @Benchmark
+    public People getHit() {
+        return table.get(hits[next()]);
+    }
+
+    @Benchmark
+    public boolean containsMiss() {
+        return table.contains(misses[next()]);
+    }
+
+    /**
+     * one insert and one remove of the same person, the table size stays the same
+     */
+    @Benchmark
+    public People insertRemove() {
+        People p = extra.get(next());
+        table.insert(p);
+        table.remove(p.getEmail());
+        return p;
+    }
+
+    /**
+     * storage only (no name index or graph), starting from the smallest table (11 slots
+     * for quadratic) so every rehash on the way to size people runs
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 10)
+    public AbstractMatchDatabase buildWithRehash() {
+        AbstractMatchDatabase fresh = newTable();
+        for (People p : people) fresh.insertEntry(p);
+        return fresh;
+    }
+}
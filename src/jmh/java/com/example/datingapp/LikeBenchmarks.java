@@ -0,0 +1,76 @@
+package com.example.datingapp;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * LikeMatcher.RomanticLiker one like at a time (what /api/interact does) and likeAll
+ * for a batch of edges (what the csv loader does)
+ *
+ * the database is rebuilt for every iteration, pairs are random so repeats (which return
+ * early) stay rare inside one iteration
+ * @author Taha
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LikeBenchmarks {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private static final int BATCH = 10_000;
+
+    private AbstractMatchDatabase db;
+    private People[] people;
+    private Random random;
+    private int[] from;
+    private int[] to;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        db = BenchData.database(new PeopleHashTable(), size, 5, 4);
+        ArrayList<People> everyone = db.getAllPeople();
+        people = everyone.toArray(new People[0]);
+        random = new Random(5);
+
+        from = new int[BATCH];
+        to = new int[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            from[i] = people[random.nextInt(size)].getId();
+            to[i] = people[random.nextInt(size)].getId();
+        }
+    }
+
+    @Benchmark
+    public boolean romanticLike() {
+        People liker = people[random.nextInt(size)];
+        People liked = people[random.nextInt(size)];
+        return new LikeMatcher(liker).RomanticLiker(liked);
+    }
+
+    /**
+     * the same batch again after the first call is mostly repeats, like reloading a file
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int likeAllBatch() {
+        return LikeMatcher.likeAll(db.getRelationshipGraph(), from, to, BATCH, true);
+    }
+}
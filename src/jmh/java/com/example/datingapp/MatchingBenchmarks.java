@@ -0,0 +1,77 @@
+package com.example.datingapp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * the read paths of the matching engine on a loaded database: findMatch, topMatches,
+ * autocomplete and the ranked name search. seekers and queries rotate so one cached
+ * answer can't dominate
+ * @author Taha
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchingBenchmarks {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"10"})
+    public int likesPerPerson;
+
+    private MatchDatabase db;
+    private String[] seekers;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        db = BenchData.database(new PeopleHashTable(), size, likesPerPerson, 3);
+        List<People> everyone = db.getAllPeople();
+        seekers = new String[1024];
+        for (int i = 0; i < seekers.length; i++) {
+            seekers[i] = everyone.get((int) ((i * 2654435761L) % everyone.size())).getEmail();
+        }
+    }
+
+    private int next() {
+        return cursor = (cursor + 1) & 1023;
+    }
+
+    @Benchmark
+    public People findMatch() {
+        return db.findMatch(seekers[next()]);
+    }
+
+    @Benchmark
+    public MatchPage topMatches() {
+        return db.topMatches(seekers[next()], 10, null);
+    }
+
+    @Benchmark
+    public ArrayList<People> autocompleteTop10() {
+        int i = next();
+        return db.autocompleteByPopularity(BenchData.PREFIXES[i % BenchData.PREFIXES.length], 10);
+    }
+
+    @Benchmark
+    public ArrayList<People> searchFirstPage() {
+        int i = next();
+        return db.searchByNameRankedByMbti(BenchData.PREFIXES[i % BenchData.PREFIXES.length], seekers[i], 20, 0);
+    }
+}
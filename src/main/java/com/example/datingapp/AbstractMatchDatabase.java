@@ -0,0 +1,359 @@
+package com.example.datingapp;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * the logic every MatchDatabase backend shares: loading the csv files, matching,
+ * autocomplete and search. backends only have to store people by email.
+ * this used to live in PeopleHashTable, it got pulled up here so the concurrent
+ * table can reuse it
+ * @author Taha and Veronica
+ */
+public abstract class AbstractMatchDatabase implements MatchDatabase {
+
+    protected final NameIndex nameIndex = new NameIndex(); // name tokens -> people, kept in sync by insert/remove
+    protected final RelationshipGraph graph = new RelationshipGraph(); // dense ids + likes/friends/matches
+    protected final CandidatePool candidatePool = new CandidatePool(graph); // (gender, mbti type) buckets for findMatch
+    protected volatile DatabaseMetrics metrics = DatabaseMetrics.NONE; // scan lengths, hit counts, rehashes, load times
+
+    /**
+     * where findMatch scan lengths, autocomplete / search hits, rehashes and load
+     * timings are reported from now on
+     * @param metrics the listener, null turns reporting off
+     */
+    public void setMetrics(DatabaseMetrics metrics) {
+        this.metrics = metrics == null ? DatabaseMetrics.NONE : metrics;
+    }
+
+    /**
+     * stores the person under their email without touching the name index
+     * @param person the person object to add
+     * @return true if they were added, false if the email was already there
+     */
+    protected abstract boolean insertEntry(People person);
+
+    /**
+     * takes the person with this email out of storage without touching the name index
+     * @param email email of the person to remove
+     * @return the removed person or null if nobody had that email
+     */
+    protected abstract People removeEntry(String email);
+
+    /**
+     * adds a new person, gives them a dense id, indexes their name for autocomplete and
+     * puts them in their findMatch bucket
+     * @param person the person object to add
+     */
+    public void insert(People person) {
+        if (insertEntry(person)) {
+            graph.register(person);
+            nameIndex.add(person);
+            candidatePool.add(person);
+        }
+    }
+
+    /**
+     * removes a person, frees their id and drops them from the name index
+     * @param email email of the person to remove
+     */
+    public void remove(String email) {
+        People removed = removeEntry(email);
+        if (removed != null) {
+            nameIndex.remove(removed);
+            candidatePool.remove(removed);
+            graph.unregister(removed);
+        }
+    }
+
+    /**
+     * the graph holding every like, friend like and match by dense id
+     * @return the relationship graph of this database
+     */
+    public RelationshipGraph getRelationshipGraph() {
+        return graph;
+    }
+
+    /**
+     * checks if a person is in the database
+     * @param email email to check
+     * @return true if they exist false otherwise
+     */
+    public boolean contains(String email) {
+        return get(email) != null;
+    }
+
+    /**
+     * Loads users from a CSV file and inserts them into the database.
+     * The file is parsed in parallel by PeopleCsvLoader, then the table is presized
+     * once and everyone is inserted in a single build step.
+     * @param filename path to the CSV file to read
+     */
+    public void loadPeopleFromCSV(String filename) {
+        try {
+            long start = System.nanoTime();
+            List<People> people = PeopleCsvLoader.load(filename);
+            insertAll(people);
+            metrics.load("users", people.size(), System.nanoTime() - start);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * bulk insert: grows the storage once for everyone, then registers ids and
+     * indexes names with one lock each instead of one per person
+     * the first person with an email wins, same as insert
+     * @param people the people to add, in order
+     */
+    public void insertAll(List<People> people) {
+        ensureCapacity(size() + people.size());
+
+        ArrayList<People> added = new ArrayList<>(people.size());
+        for (People p : people) {
+            if (insertEntry(p)) {
+                added.add(p);
+            }
+        }
+        graph.registerAll(added);
+        nameIndex.addAll(added);
+        candidatePool.addAll(added);
+    }
+
+    /**
+     * makes room for at least this many people so a bulk load doesn't rehash over and over
+     * @param expectedSize how many people the storage should hold without growing
+     */
+    protected abstract void ensureCapacity(int expectedSize);
+
+    /**
+     * number of people currently stored
+     */
+    protected abstract int size();
+
+    /**
+     * loads who likes who or who is friends from another csv
+     * the rows are parsed in parallel into id pairs and applied in bulk by LikeMatcher.likeAll,
+     * the result is the same as running every row through LikeMatcher one by one
+     * @param filename name of the relationship file
+     */
+    public void loadRelationships(String filename) {
+        try {
+            long start = System.nanoTime();
+            RelationshipCsvLoader.Result edges = RelationshipCsvLoader.load(filename, this::get);
+            LikeMatcher.likeAll(graph, edges.likes.from, edges.likes.to, edges.likes.count, true);
+            LikeMatcher.likeAll(graph, edges.friends.from, edges.friends.to, edges.friends.count, false);
+            metrics.load("relationships", (long) edges.likes.count + edges.friends.count, System.nanoTime() - start);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * writes people, mbti stats, popularity and every relationship to a binary snapshot
+     * @param filename where to write
+     * @param extras state kept outside the database that should be saved with it, can be null
+     * @throws IOException if the file can't be written
+     */
+    public void saveSnapshot(String filename, DatabaseSnapshot.Extras extras) throws IOException {
+        DatabaseSnapshot.write(this, extras, filename);
+    }
+
+    /**
+     * loads a snapshot written by saveSnapshot, the database has to be empty
+     * @param filename the snapshot file
+     * @return the extras that were saved with it
+     * @throws IOException if the file can't be read or is broken
+     */
+    public DatabaseSnapshot.Extras loadSnapshot(String filename) throws IOException {
+        long start = System.nanoTime();
+        DatabaseSnapshot.Extras extras = DatabaseSnapshot.read(filename, this);
+        metrics.load("snapshot", size(), System.nanoTime() - start);
+        return extras;
+    }
+
+    /**
+     * Prints the full list of 'Likes' and 'Friends' for every active user.
+     */
+    public void printDetailedRelations() {
+        System.out.println("\n==================== RELATIONSHIP AUDIT ==========================");
+        for (People p : getAllPeople()) {
+            System.out.println("User: " + p.getName() + " (" + p.getEmail() + ")");
+            System.out.println("   -> Friends: " + p.getFriendEmails()); 
+            System.out.println("   -> Likes:   " + p.getLikedEmails());  
+            System.out.println("------------------------------------------------------------------");
+        }
+        System.out.println("==================================================================\n");
+    }
+    /**
+     * the main matching algorithm that finds someone compatible for the user
+     * only the candidate pool buckets that fit the seekers gender preferences and strong
+     * mbti preferences are looked at, and a random person from them is picked
+     * @param email email of the person who needs a match
+     * @return a person object that matches or null if nobody is found
+     */
+    public People findMatch(String email) {
+        People seeker = get(email);
+        if (seeker == null) {
+            System.out.println("User not found: " + email);
+            return null;
+        }
+
+        int[] scanned = {0};
+        People match = candidatePool.pick(seeker, candidate -> {
+            scanned[0]++;
+            return isMatchCandidate(seeker, candidate);
+        });
+        metrics.findMatch(scanned[0], match != null);
+        return match;
+    }
+
+    /**
+     * the checks findMatch and topMatches run on every candidate
+     */
+    private boolean isMatchCandidate(People seeker, People candidate) {
+        // Skip the user themselves
+        return candidate != seeker
+                // If they already mutually like each other, skip this candidate.
+                && !seeker.isLikeMatchedWith(candidate)
+                //if the genders are not compatible, dont suggest them
+                && seeker.isMutuallyRomanticallyCompatible(candidate)
+                //Statistical compatibility check (The 33% Rule)
+                && isCompatible(seeker, candidate) && isCompatible(candidate, seeker);
+    }
+
+    /**
+     * the best `limit` mutually compatible candidates for the user, ranked by the mbti
+     * score in both directions, then popularity. only the candidate pool buckets that fit
+     * the user are scanned and a bounded heap keeps the best ones, nothing gets sorted
+     * except the page itself
+     * @param email email of the person who needs matches
+     * @param limit page size
+     * @param cursor nextCursor of the previous page, null or "" for the first page
+     * @return the page, empty if the user doesn't exist
+     * @throws IllegalArgumentException if the cursor is not one we made
+     */
+    public MatchPage topMatches(String email, int limit, String cursor) {
+        MatchPage.Ranked after = MatchPage.Ranked.parse(cursor);
+        People seeker = get(email);
+        if (seeker == null || limit <= 0) return new MatchPage(new ArrayList<>(), null);
+
+        TopK<MatchPage.Ranked> top = new TopK<>(limit, MatchPage.Ranked.BEST_FIRST);
+        candidatePool.forEachCandidate(seeker, candidate -> {
+            if (!isMatchCandidate(seeker, candidate)) return;
+            int score = seeker.mbtiEighthsFor(candidate) + candidate.mbtiEighthsFor(seeker);
+            MatchPage.Ranked ranked = new MatchPage.Ranked(candidate, score, candidate.getLikedByCount(), candidate.getId());
+            // skip everyone on the earlier pages
+            if (after != null && MatchPage.Ranked.BEST_FIRST.compare(ranked, after) <= 0) return;
+            top.offer(ranked);
+        });
+
+        ArrayList<MatchPage.Ranked> best = top.sorted();
+        ArrayList<People> people = new ArrayList<>(best.size());
+        for (MatchPage.Ranked r : best) people.add(r.person);
+        String next = best.size() == limit ? best.get(best.size() - 1).cursor() : null;
+        return new MatchPage(people, next);
+    }
+
+    private boolean isCompatible(People judge, People subject) {
+        // the judge keeps a cached verdict for every mbti type (The 33% Rule),
+        // it is rebuilt only when their stats change so this is a single lookup
+        return judge.acceptsMbtiOf(subject);
+    }
+
+    /**
+     * Autocomplete suggestions:
+     * Given a name prefix, return users whose names contain a token 
+     * starting with that prefix, sorted by popularity (likedByCount, descending)
+     * 
+     * This is used while the user is still typing, before final search.
+     * Only the users found through the name index are visited, not the whole table.
+     */
+    public ArrayList<People> autocompleteByPopularity(String prefix){
+        return autocompleteByPopularity(prefix, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Same as autocompleteByPopularity(prefix) but only keeps the `limit` most popular hits.
+     * Uses a min-heap of size limit so the cost is O(hits * log limit) instead of sorting every hit.
+     * Each hit's likedByCount is read once into its rank key (likes keep changing it while we
+     * sort), ties go to the lower id so the order is total.
+     * @param prefix what the user typed so far
+     * @param limit how many suggestions we want back
+     * @return at most limit people, most popular first
+     */
+    public ArrayList<People> autocompleteByPopularity(String prefix, int limit){
+        if(prefix == null || limit <= 0) return new ArrayList<>();
+
+        TopK<MatchPage.Ranked> top = new TopK<>(limit, MatchPage.Ranked.BEST_FIRST);
+        ArrayList<People> hits = nameIndex.findByPrefix(prefix);
+        metrics.autocomplete(hits.size());
+        for(People p : hits){
+            // no mbti score here, popularity then id decide
+            top.offer(new MatchPage.Ranked(p, 0, p.getLikedByCount(), p.getId()));
+        }
+
+        // the survivors, likedByCount descending
+        ArrayList<People> result = new ArrayList<>(top.size());
+        for(MatchPage.Ranked r : top.sorted()) result.add(r.person);
+        return result;
+    }
+
+    /**
+     * Full search:
+     * Given the current user's email and a name query (which might still be partial)
+     * find all matching users and rank them by MBTI compatibility score
+     * (higher is better), then by popularity as a tiebreaker.
+     * 
+     * This is used after the user finishes typing and clicks "Search".
+     */
+    public ArrayList<People> searchByNameRankedByMbti(String nameQuery, String currentUserEmail){
+        return searchByNameRankedByMbti(nameQuery, currentUserEmail, Integer.MAX_VALUE, 0);
+    }
+
+    /**
+     * Same ranking as searchByNameRankedByMbti(nameQuery, email) but only one page of it.
+     * The name index gives the users with a name token starting with the query, each one is
+     * scored once with the cached mbti scores in both directions and a heap of size
+     * offset + limit keeps the best, so a search is one pass and only the page gets sorted.
+     * Ties are broken by popularity and then id so pages don't overlap.
+     * @param nameQuery what the user typed
+     * @param currentUserEmail email of the person searching
+     * @param limit how many results we want back
+     * @param offset how many of the best results to skip (earlier pages)
+     * @return at most limit people, best first
+     */
+    public ArrayList<People> searchByNameRankedByMbti(String nameQuery, String currentUserEmail, int limit, int offset){
+        ArrayList<People> result = new ArrayList<>();
+        People currentUser = get(currentUserEmail);
+
+        if(currentUser == null || nameQuery == null || limit <= 0 || offset < 0){
+            return result;
+        }
+
+        // the heap has to hold the skipped ones too, careful not to overflow
+        int keep = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+        TopK<MatchPage.Ranked> top = new TopK<>(keep, MatchPage.Ranked.BEST_FIRST);
+        ArrayList<People> hits = nameIndex.findByPrefix(nameQuery);
+        metrics.search(hits.size());
+        for(People p : hits){
+            //Skip self
+            if(p == currentUser) continue;
+
+            //only show people with prefered gender
+            if(!currentUser.isMutuallyRomanticallyCompatible(p)) continue;
+
+            // both mbti scores come out of the per judge cache, in eighths
+            int score = currentUser.mbtiEighthsFor(p) + p.mbtiEighthsFor(currentUser);
+            top.offer(new MatchPage.Ranked(p, score, p.getLikedByCount(), p.getId()));
+        }
+
+        ArrayList<MatchPage.Ranked> best = top.sorted();
+        for(int i = offset; i < best.size(); i++){
+            result.add(best.get(i).person);
+        }
+        return result;
+    }
+
+
+}
\ No newline at end of file
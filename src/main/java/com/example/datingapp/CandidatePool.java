@@ -0,0 +1,233 @@
+package com.example.datingapp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * everyone in the database sorted into buckets by (gender, mbti type) so findMatch only
+ * looks at people the seeker could actually want
+ *
+ * a bucket is an int array of dense graph ids, adding appends and removing swaps the last
+ * member into the hole, so both are O(1) and a random member is one array read.
+ * findMatch takes the buckets for the seekers gender preferences and the mbti types
+ * their cached 33% rule accepts, tries a few random members from them, and only if those
+ * all fail walks the chosen buckets from a random spot. so the cost depends on how many
+ * people fit the seeker, not on how big the table is.
+ *
+ * the bucket of a person is decided when they are added, gender and mbti type are set
+ * before a person is inserted and don't change after that
+ * @author Taha
+ */
+public class CandidatePool {
+
+    private static final int RANDOM_TRIES = 32;
+
+    private final RelationshipGraph graph;
+    // GenderDictionary id -> one bucket per mbti type index (17, NA included), null until
+    // someone with that gender shows up
+    private Bucket[][] buckets = new Bucket[4][];
+    // where each id sits: its bucket and the slot inside it
+    private Bucket[] bucketOf = new Bucket[16];
+    private int[] slotOf = new int[16];
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private static class Bucket {
+        int[] ids = new int[4];
+        int size = 0;
+    }
+
+    /**
+     * @param graph the graph of the same database, ids are resolved through it
+     */
+    public CandidatePool(RelationshipGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * puts the person in the bucket for their gender and mbti type, they need a graph id already
+     * @param p the person that was just inserted
+     */
+    public void add(People p) {
+        lock.writeLock().lock();
+        try {
+            addUnlocked(p);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * adds a whole batch under one lock, used by bulk loading
+     */
+    public void addAll(List<People> people) {
+        lock.writeLock().lock();
+        try {
+            for (People p : people) addUnlocked(p);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addUnlocked(People p) {
+        int id = p.getId();
+        if (id < 0) return;
+        if (id >= bucketOf.length) {
+            int capacity = Math.max(id + 1, bucketOf.length * 2);
+            bucketOf = Arrays.copyOf(bucketOf, capacity);
+            slotOf = Arrays.copyOf(slotOf, capacity);
+        }
+        if (bucketOf[id] != null) return; // already in
+
+        int g = p.getGenderId();
+        if (g >= buckets.length) buckets = Arrays.copyOf(buckets, Math.max(g + 1, buckets.length * 2));
+        if (buckets[g] == null) buckets[g] = newBucketRow();
+        Bucket b = buckets[g][p.mbtiTypeIndex()];
+        if (b.size == b.ids.length) b.ids = Arrays.copyOf(b.ids, b.size * 2);
+        b.ids[b.size] = id;
+        bucketOf[id] = b;
+        slotOf[id] = b.size++;
+    }
+
+    /**
+     * takes the person out of their bucket
+     * @param p the person being removed (call before their id is freed)
+     */
+    public void remove(People p) {
+        lock.writeLock().lock();
+        try {
+            int id = p.getId();
+            if (id < 0 || id >= bucketOf.length || bucketOf[id] == null) return;
+
+            // move the last member into the hole
+            Bucket b = bucketOf[id];
+            int slot = slotOf[id];
+            int last = b.ids[--b.size];
+            b.ids[slot] = last;
+            slotOf[last] = slot;
+            bucketOf[id] = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * forgets everyone
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            buckets = new Bucket[4][];
+            bucketOf = new Bucket[16];
+            slotOf = new int[16];
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * picks a random person from the buckets that fit the seekers side (gender preferences
+     * and strong mbti preferences) who also passes accept
+     * @param seeker the person looking for a match
+     * @param accept the remaining checks (their side, not already matched, ...)
+     * @return a random accepted candidate or null if there is none
+     */
+    public People pick(People seeker, Predicate<People> accept) {
+        lock.readLock().lock();
+        try {
+            ArrayList<Bucket> chosen = chooseBuckets(seeker);
+            int total = 0;
+            for (Bucket b : chosen) total += b.size;
+            if (total == 0) return null;
+
+            // usually a few random draws find someone
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int t = 0; t < RANDOM_TRIES; t++) {
+                People candidate = memberAt(chosen, random.nextInt(total));
+                if (candidate != null && accept.test(candidate)) return candidate;
+            }
+
+            // otherwise walk all of them once from a random spot so a lone match isn't missed
+            int start = random.nextInt(total);
+            for (int i = 0; i < total; i++) {
+                People candidate = memberAt(chosen, (start + i) % total);
+                if (candidate != null && accept.test(candidate)) return candidate;
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * runs action on everyone in the buckets that fit the seekers side, for rankings that
+     * have to see every candidate. the pool is read locked meanwhile so action can't insert
+     * @param seeker the person looking for matches
+     * @param action called once per candidate (the seeker included if they fit their own buckets)
+     */
+    public void forEachCandidate(People seeker, Consumer<People> action) {
+        lock.readLock().lock();
+        try {
+            for (Bucket b : chooseBuckets(seeker)) {
+                for (int i = 0; i < b.size; i++) {
+                    People candidate = graph.person(b.ids[i]);
+                    if (candidate != null) action.accept(candidate);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * buckets for the seekers gender preferences (all genders if they have none) and the
+     * mbti types they accept, call with the read lock held
+     */
+    private ArrayList<Bucket> chooseBuckets(People seeker) {
+        ArrayList<Bucket> chosen = new ArrayList<>();
+        long[] wanted = seeker.getGenderPreferenceMask();
+        if (wanted.length == 0) {
+            // no restriction, every gender
+            for (Bucket[] row : buckets) {
+                if (row != null) choose(row, seeker, chosen);
+            }
+        } else {
+            // walk the set bits, each gender id comes up once
+            for (int w = 0; w < wanted.length; w++) {
+                for (long bits = wanted[w]; bits != 0; bits &= bits - 1) {
+                    int g = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    if (g < buckets.length && buckets[g] != null) choose(buckets[g], seeker, chosen);
+                }
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * adds the non empty buckets of this gender whose mbti type the seeker accepts
+     */
+    private static void choose(Bucket[] row, People seeker, ArrayList<Bucket> chosen) {
+        for (int type = 0; type < row.length; type++) {
+            if (row[type].size > 0 && seeker.acceptsMbtiType(type)) {
+                chosen.add(row[type]);
+            }
+        }
+    }
+
+    private People memberAt(ArrayList<Bucket> chosen, int index) {
+        for (Bucket b : chosen) {
+            if (index < b.size) return graph.person(b.ids[index]);
+            index -= b.size;
+        }
+        return null;
+    }
+
+    private static Bucket[] newBucketRow() {
+        Bucket[] row = new Bucket[People.MBTI_TYPE_COUNT];
+        for (int i = 0; i < row.length; i++) row[i] = new Bucket();
+        return row;
+    }
+}
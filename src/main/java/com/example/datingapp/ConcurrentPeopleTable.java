@@ -0,0 +1,152 @@
+package com.example.datingapp;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * thread safe MatchDatabase for the web server where tomcat threads hit the data at the same time
+ *
+ * storage is a ConcurrentHashMap keyed by email:
+ * - get / contains never lock, so reads scale with the number of cores
+ * - writes only lock the one bucket they touch (lock striping per bin)
+ * - resizing is done a piece at a time and readers keep using the old table until
+ *   their bucket has moved, so a register that grows the table never blocks lookups
+ *
+ * the name index, relationship graph and candidate pool have their own read/write locks,
+ * and insert/remove update them while the bucket for that email is held so a racing insert
+ * and remove of the same email can't leave them out of sync
+ * @author Taha
+ */
+public class ConcurrentPeopleTable extends AbstractMatchDatabase {
+
+    // only replaced by ensureCapacity while still empty
+    private volatile ConcurrentHashMap<String, People> table;
+
+    public ConcurrentPeopleTable() {
+        this(16);
+    }
+
+    public ConcurrentPeopleTable(int expectedSize) {
+        table = sized(expectedSize);
+    }
+
+    /**
+     * finds a person using their email, never blocks
+     * @param email the email of the person we want
+     * @return the person object if found otherwise null
+     */
+    public People get(String email) {
+        if (email == null) return null;
+        return table.get(email);
+    }
+
+    /**
+     * checks if a person is in the table, never blocks
+     * @param email email to check
+     * @return true if they exist false otherwise
+     */
+    public boolean contains(String email) {
+        return email != null && table.containsKey(email);
+    }
+
+    /**
+     * adds a new person, the first person with an email wins like in PeopleHashTable
+     * the name index is updated while the bucket is locked
+     * @param person the person object to add
+     */
+    public void insert(People person) {
+        table.computeIfAbsent(person.getEmail(), k -> {
+            graph.register(person);
+            nameIndex.add(person);
+            candidatePool.add(person);
+            return person;
+        });
+    }
+
+    /**
+     * removes a person and drops them from the name index while the bucket is locked
+     * @param email email of the person to remove
+     */
+    public void remove(String email) {
+        if (email == null) return;
+        table.computeIfPresent(email, (k, old) -> {
+            nameIndex.remove(old);
+            candidatePool.remove(old);
+            graph.unregister(old);
+            return null;
+        });
+    }
+
+    protected boolean insertEntry(People person) {
+        return table.putIfAbsent(person.getEmail(), person) == null;
+    }
+
+    protected People removeEntry(String email) {
+        if (email == null) return null;
+        return table.remove(email);
+    }
+
+    /**
+     * ConcurrentHashMap can't be resized up front once it has entries, so this only
+     * applies to an empty table: it is swapped for one with room for everyone. that is the
+     * bulk load case (CSV or snapshot at startup, before requests come in). a table that
+     * already has people grows a piece at a time without blocking anyone instead
+     */
+    protected void ensureCapacity(int expectedSize) {
+        if (table.isEmpty() && expectedSize > 16) {
+            table = sized(expectedSize);
+        }
+    }
+
+    /**
+     * a map that holds expectedSize people under the default 0.75 load without resizing
+     */
+    private static ConcurrentHashMap<String, People> sized(int expectedSize) {
+        return new ConcurrentHashMap<>(expectedSize, 0.75f);
+    }
+
+    protected int size() {
+        return table.size();
+    }
+
+    /**
+     * gets a list of everyone currently in the system
+     * this is a snapshot, people added while we copy may or may not show up
+     * @return arraylist containing all the people objects
+     */
+    public ArrayList<People> getAllPeople() {
+        return new ArrayList<>(table.values());
+    }
+
+    /**
+     * ConcurrentHashMap keeps its bins to itself, so only the size is reported
+     * @return stats with the entry count and empty probe fields
+     */
+    public ProbeStats probeStats() {
+        return ProbeStats.unavailable("concurrent", "String.hashCode", table.size());
+    }
+
+    /**
+     * @return the entry count, there is no capacity or tombstone count to show
+     */
+    public ProbeStats loadStats() {
+        return probeStats();
+    }
+
+    /**
+     * prints every entry, there are no slots or tombstones to show here
+     */
+    public void printTable() {
+        System.out.println("\n==================== CONCURRENT TABLE ============================");
+        System.out.printf("Active Items: %d%n", table.size());
+        System.out.println("------------------------------------------------------------------");
+        System.out.printf("%-35s | %-15s | %-15s%n", "EMAIL", "SELF (MBTI)", "PREFS (STATS)");
+        System.out.println("------------------------------------------------------------------");
+        for (Map.Entry<String, People> entry : table.entrySet()) {
+            People p = entry.getValue();
+            System.out.printf("%-35s | %-15s | %-15s%n",
+                              entry.getKey(), p.getMbtiSelfType(), p.getMbtiStats());
+        }
+        System.out.println("==================================================================\n");
+    }
+}
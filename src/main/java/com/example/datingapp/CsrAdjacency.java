@@ -0,0 +1,361 @@
+package com.example.datingapp;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * one kind of relationship (likes, friend likes, ...) stored as a compressed sparse row graph
+ *
+ * the base is two int arrays: targets holds every edge grouped by source and sorted inside
+ * each row, offsets[src] .. offsets[src + 1] is the slice that belongs to src. so an edge is
+ * just 4 bytes and walking someones row is walking a piece of one array.
+ *
+ * the base can't change without a rebuild, so live writes go into a small overlay: per row a
+ * sorted int array of added targets and one of removed base targets. once the overlay gets
+ * big compared to the base, compact() folds it back into new base arrays.
+ *
+ * not thread safe, RelationshipGraph locks around it
+ * @author Taha
+ */
+class CsrAdjacency {
+
+    private static final int[] EMPTY = new int[0];
+    private static final int MIN_OVERLAY_BEFORE_COMPACT = 4096;
+
+    private int[] offsets;
+    private int[] targets;
+
+    // overlay, indexed by source id, rows are sorted and only the first count entries are used
+    private int[][] added = new int[0][];
+    private int[] addedCount = new int[0];
+    private int[][] removed = new int[0][];
+    private int[] removedCount = new int[0];
+    private long overlaySize = 0;
+
+    CsrAdjacency() {
+        this(new int[] {0}, EMPTY);
+    }
+
+    /**
+     * wraps already built csr arrays, rows have to be sorted and without repeats
+     * @param offsets row starts, one longer than the number of rows
+     * @param targets every edge target grouped by row
+     */
+    CsrAdjacency(int[] offsets, int[] targets) {
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * builds a csr straight from an edge list in linear time: one counting sort by target,
+     * then a stable one by source, so every row comes out sorted. repeats are dropped
+     * @param rows number of ids, every id in the lists has to be below it
+     * @param src edge sources
+     * @param dst edge targets, dst[i] goes with src[i]
+     * @param count how many entries of src / dst are used
+     */
+    static CsrAdjacency fromEdges(int rows, int[] src, int[] dst, int count) {
+        // pass 1: order the edges by target
+        int[] bucket = new int[rows + 1];
+        for (int i = 0; i < count; i++) bucket[dst[i] + 1]++;
+        for (int v = 0; v < rows; v++) bucket[v + 1] += bucket[v];
+        int[] bySrc = new int[count];
+        int[] byDst = new int[count];
+        for (int i = 0; i < count; i++) {
+            int at = bucket[dst[i]]++;
+            bySrc[at] = src[i];
+            byDst[at] = dst[i];
+        }
+
+        // pass 2: stable by source, targets stay in order inside each row
+        int[] offsets = new int[rows + 1];
+        for (int i = 0; i < count; i++) offsets[bySrc[i] + 1]++;
+        for (int v = 0; v < rows; v++) offsets[v + 1] += offsets[v];
+        System.arraycopy(offsets, 0, bucket, 0, rows);
+        int[] targets = new int[count];
+        for (int i = 0; i < count; i++) {
+            targets[bucket[bySrc[i]]++] = byDst[i];
+        }
+
+        // drop repeats, rows are sorted so they sit next to each other
+        int n = 0;
+        for (int v = 0; v < rows; v++) {
+            int start = offsets[v];
+            int end = offsets[v + 1];
+            offsets[v] = n;
+            for (int i = start; i < end; i++) {
+                if (i > start && targets[i] == targets[i - 1]) continue;
+                targets[n++] = targets[i];
+            }
+        }
+        offsets[rows] = n;
+        return new CsrAdjacency(offsets, n == count ? targets : Arrays.copyOf(targets, n));
+    }
+
+    private int baseRows() {
+        return offsets.length - 1;
+    }
+
+    private boolean inBase(int src, int dst) {
+        if (src >= baseRows()) return false;
+        return Arrays.binarySearch(targets, offsets[src], offsets[src + 1], dst) >= 0;
+    }
+
+    /**
+     * checks if the edge src -> dst is there
+     */
+    boolean contains(int src, int dst) {
+        if (inBase(src, dst)) {
+            return !rowContains(removed, removedCount, src, dst);
+        }
+        return rowContains(added, addedCount, src, dst);
+    }
+
+    /**
+     * adds src -> dst
+     * @return true if the edge wasn't there before
+     */
+    boolean add(int src, int dst) {
+        if (inBase(src, dst)) {
+            // only "new" if it had been removed from the base earlier
+            return rowRemove(removed, removedCount, src, dst);
+        }
+        return rowInsert(true, src, dst);
+    }
+
+    /**
+     * removes src -> dst
+     * @return true if the edge was there
+     */
+    boolean remove(int src, int dst) {
+        if (inBase(src, dst)) {
+            return rowInsert(false, src, dst);
+        }
+        return rowRemove(added, addedCount, src, dst);
+    }
+
+    /**
+     * how many edges go out of src right now
+     */
+    int degree(int src) {
+        int base = src < baseRows() ? offsets[src + 1] - offsets[src] : 0;
+        int plus = src < addedCount.length ? addedCount[src] : 0;
+        int minus = src < removedCount.length ? removedCount[src] : 0;
+        return base + plus - minus;
+    }
+
+    /**
+     * every target of src in id order, base and overlay merged
+     * @param src the source id
+     * @return a new sorted array
+     */
+    int[] row(int src) {
+        int baseStart = src < baseRows() ? offsets[src] : 0;
+        int baseEnd = src < baseRows() ? offsets[src + 1] : 0;
+        int[] plus = src < added.length ? added[src] : null;
+        int plusCount = src < addedCount.length ? addedCount[src] : 0;
+        int[] minus = src < removed.length ? removed[src] : null;
+        int minusCount = src < removedCount.length ? removedCount[src] : 0;
+
+        int[] out = new int[baseEnd - baseStart + plusCount - minusCount];
+        int n = 0;
+        int i = baseStart;
+        int j = 0;
+        int r = 0;
+        // merge two sorted lists, skipping base entries that were removed
+        while (i < baseEnd || j < plusCount) {
+            if (j >= plusCount || (i < baseEnd && targets[i] < plus[j])) {
+                int t = targets[i++];
+                while (r < minusCount && minus[r] < t) r++;
+                if (r < minusCount && minus[r] == t) continue;
+                out[n++] = t;
+            } else {
+                out[n++] = plus[j++];
+            }
+        }
+        return out;
+    }
+
+    /**
+     * true once the overlay is big enough that rebuilding the base is worth it
+     */
+    boolean needsCompaction() {
+        return overlaySize > Math.max(MIN_OVERLAY_BEFORE_COMPACT, targets.length / 4);
+    }
+
+    /**
+     * folds the overlay into fresh base arrays
+     * @param rows how many rows the new base should have (the number of ids handed out)
+     * @param alive which ids still exist, edges from or to anyone else are dropped
+     */
+    void compact(int rows, IntPredicate alive) {
+        int[] newOffsets = new int[rows + 1];
+        int[][] merged = new int[rows][];
+        long total = 0;
+        for (int src = 0; src < rows; src++) {
+            int[] row = alive.test(src) ? row(src) : EMPTY;
+            int kept = 0;
+            for (int t : row) {
+                if (alive.test(t)) row[kept++] = t;
+            }
+            merged[src] = row;
+            newOffsets[src] = (int) total;
+            total += kept;
+            newOffsets[src + 1] = (int) total;
+        }
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("too many edges for one relation: " + total);
+        }
+
+        int[] newTargets = new int[(int) total];
+        for (int src = 0; src < rows; src++) {
+            System.arraycopy(merged[src], 0, newTargets, newOffsets[src], newOffsets[src + 1] - newOffsets[src]);
+        }
+
+        offsets = newOffsets;
+        targets = newTargets;
+        added = new int[0][];
+        addedCount = new int[0];
+        removed = new int[0][];
+        removedCount = new int[0];
+        overlaySize = 0;
+    }
+
+    /**
+     * merges a whole batch of edges in with one rebuild instead of one overlay insert each,
+     * the result is compacted (overlay folded in, removed people dropped)
+     * @param extra the new edges, usually from fromEdges
+     * @param rows how many rows the new base should have (the number of ids handed out)
+     * @param alive which ids still exist
+     */
+    void addAll(CsrAdjacency extra, int rows, IntPredicate alive) {
+        long bound = (long) targets.length + overlaySize + extra.targets.length;
+        if (bound > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("too many edges for one relation: " + bound);
+        }
+
+        int[] newOffsets = new int[rows + 1];
+        int[] newTargets = new int[(int) bound];
+        int n = 0;
+        for (int src = 0; src < rows; src++) {
+            newOffsets[src] = n;
+            if (!alive.test(src)) continue;
+
+            // the current row, straight from the base unless the overlay touches it
+            int[] mine;
+            int i;
+            int iEnd;
+            if (hasOverlay(src)) {
+                mine = row(src);
+                i = 0;
+                iEnd = mine.length;
+            } else {
+                mine = targets;
+                i = src < baseRows() ? offsets[src] : 0;
+                iEnd = src < baseRows() ? offsets[src + 1] : 0;
+            }
+            int j = src < extra.baseRows() ? extra.offsets[src] : 0;
+            int jEnd = src < extra.baseRows() ? extra.offsets[src + 1] : 0;
+
+            // merge two sorted rows, an edge in both is kept once
+            while (i < iEnd || j < jEnd) {
+                int t;
+                if (j >= jEnd || (i < iEnd && mine[i] < extra.targets[j])) {
+                    t = mine[i++];
+                } else if (i < iEnd && mine[i] == extra.targets[j]) {
+                    t = mine[i++];
+                    j++;
+                } else {
+                    t = extra.targets[j++];
+                }
+                if (alive.test(t)) newTargets[n++] = t;
+            }
+        }
+        newOffsets[rows] = n;
+
+        offsets = newOffsets;
+        targets = n == newTargets.length ? newTargets : Arrays.copyOf(newTargets, n);
+        added = new int[0][];
+        addedCount = new int[0];
+        removed = new int[0][];
+        removedCount = new int[0];
+        overlaySize = 0;
+    }
+
+    private boolean hasOverlay(int src) {
+        return src < added.length && (added[src] != null || removed[src] != null);
+    }
+
+    /**
+     * number of edges in the base arrays (not counting the overlay)
+     */
+    int baseEdgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * the raw base arrays, only valid right after compact()
+     */
+    int[] baseOffsets() {
+        return offsets;
+    }
+
+    int[] baseTargets() {
+        return targets;
+    }
+
+    // --- overlay helpers ---
+
+    private static boolean rowContains(int[][] rows, int[] counts, int src, int dst) {
+        if (src >= rows.length || rows[src] == null) return false;
+        return Arrays.binarySearch(rows[src], 0, counts[src], dst) >= 0;
+    }
+
+    private boolean rowInsert(boolean toAdded, int src, int dst) {
+        ensureOverlayRows(src + 1);
+        int[][] rows = toAdded ? added : removed;
+        int[] counts = toAdded ? addedCount : removedCount;
+
+        int[] row = rows[src];
+        int count = counts[src];
+        if (row == null) {
+            row = new int[4];
+            rows[src] = row;
+        }
+        int pos = Arrays.binarySearch(row, 0, count, dst);
+        if (pos >= 0) return false;
+        pos = -pos - 1;
+
+        if (count == row.length) {
+            row = Arrays.copyOf(row, row.length * 2);
+            rows[src] = row;
+        }
+        System.arraycopy(row, pos, row, pos + 1, count - pos);
+        row[pos] = dst;
+        counts[src] = count + 1;
+        overlaySize++;
+        return true;
+    }
+
+    private boolean rowRemove(int[][] rows, int[] counts, int src, int dst) {
+        if (src >= rows.length || rows[src] == null) return false;
+        int[] row = rows[src];
+        int count = counts[src];
+        int pos = Arrays.binarySearch(row, 0, count, dst);
+        if (pos < 0) return false;
+
+        System.arraycopy(row, pos + 1, row, pos, count - pos - 1);
+        counts[src] = count - 1;
+        if (counts[src] == 0) rows[src] = null;
+        overlaySize--;
+        return true;
+    }
+
+    private void ensureOverlayRows(int rows) {
+        if (rows <= added.length) return;
+        int capacity = Math.max(rows, Math.max(16, added.length * 2));
+        added = Arrays.copyOf(added, capacity);
+        addedCount = Arrays.copyOf(addedCount, capacity);
+        removed = Arrays.copyOf(removed, capacity);
+        removedCount = Arrays.copyOf(removedCount, capacity);
+    }
+}
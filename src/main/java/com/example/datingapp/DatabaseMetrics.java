@@ -0,0 +1,50 @@
+package com.example.datingapp;
+
+/**
+ * what the database reports about itself while it works: how far findMatch had to look,
+ * how many people autocomplete and search found, table resizes and load times
+ *
+ * the core doesn't depend on any metrics library, the web app plugs in a Micrometer
+ * backed one (MicrometerDatabaseMetrics). every method defaults to doing nothing and
+ * they are called on hot paths, so implementations should only bump counters
+ * @author Taha
+ */
+public interface DatabaseMetrics {
+
+    /**
+     * the one that ignores everything, databases start with it
+     */
+    DatabaseMetrics NONE = new DatabaseMetrics() {};
+
+    /**
+     * @param scanned how many candidates were checked
+     * @param found whether a match came back
+     */
+    default void findMatch(int scanned, boolean found) {}
+
+    /**
+     * @param hits how many people had a name token starting with the prefix
+     */
+    default void autocomplete(int hits) {}
+
+    /**
+     * @param hits how many name matches were ranked (before the page was cut)
+     */
+    default void search(int hits) {}
+
+    /**
+     * the storage array was rebuilt
+     * @param oldCapacity slots before
+     * @param newCapacity slots after (same size when only tombstones were cleared out)
+     * @param nanos how long the rebuild took
+     */
+    default void rehash(int oldCapacity, int newCapacity, long nanos) {}
+
+    /**
+     * a bulk load finished
+     * @param source "users", "relationships" or "snapshot"
+     * @param rows people or relationship rows loaded
+     * @param nanos how long it took
+     */
+    default void load(String source, long rows, long nanos) {}
+}
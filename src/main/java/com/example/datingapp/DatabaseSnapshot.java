@@ -0,0 +1,356 @@
+package com.example.datingapp;
+import com.example.datingapp.RelationshipGraph.Relation;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * saves the whole database to one binary file and loads it back without parsing csv
+ * or replaying likes
+ *
+ * everything is stored as flat int arrays and string tables (one UTF-8 blob plus an int
+ * array of where each string ends), so loading is a memory map and a few bulk copies:
+ * - people: name, email, mbti, gender (id into a small table of distinct genders) and
+ *   gender preferences (csr of gender ids)
+ * - the mbti preference counters, valid likes and popularity of everyone
+ * - the 4 relations as the csr arrays RelationshipGraph already uses, restored as is
+ * - extras the web controller keeps next to the database (recommendations, match history)
+ *
+ * ids are renumbered on save so removed people leave no gaps, the file is written to a
+ * temp file first and moved over the old one so a crash never leaves half a snapshot.
+ * a single file is mapped at once so it has to stay under 2GB.
+ * @author Taha
+ */
+public class DatabaseSnapshot {
+
+    private static final int MAGIC = 0x44415453; // "DATS"
+    private static final int VERSION = 1;
+    private static final int NONE = -1;
+
+    /**
+     * the state the web controller keeps outside the database
+     */
+    public static class Extras {
+        public final Map<String, List<String>> recommendations;
+        public final List<String> matchHistory;
+
+        public Extras(Map<String, List<String>> recommendations, List<String> matchHistory) {
+            this.recommendations = recommendations;
+            this.matchHistory = matchHistory;
+        }
+
+        public static Extras empty() {
+            return new Extras(new LinkedHashMap<>(), new ArrayList<>());
+        }
+    }
+
+    /**
+     * writes everything in the database (and the extras) to filename
+     * @param db the database to save
+     * @param extras recommendations etc, can be null
+     * @param filename where to write
+     * @throws IOException if the file can't be written
+     */
+    public static void write(AbstractMatchDatabase db, Extras extras, String filename) throws IOException {
+        if (extras == null) extras = Extras.empty();
+        // no like is halfway done while the graph and counters are copied
+        RelationshipGraph.Export graph = LikeMatcher.withAllLanes(() -> db.getRelationshipGraph().export());
+        People[] people = graph.people;
+        int n = people.length;
+
+        Path target = Path.of(filename).toAbsolutePath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        try (Out out = new Out(temp)) {
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(n);
+
+            // name, email, mbti for everyone
+            ArrayList<String> strings = new ArrayList<>(3 * n);
+            for (People p : people) {
+                strings.add(p.getName() == null ? "" : p.getName());
+                strings.add(p.getEmail());
+                strings.add(p.getMbtiRaw() == null ? "" : p.getMbtiRaw());
+            }
+            out.putStrings(strings);
+
+            // genders are a handful of distinct strings, store them once
+            HashMap<String, Integer> genderIds = new HashMap<>();
+            ArrayList<String> genderNames = new ArrayList<>();
+            int[] gender = new int[n];
+            int[] prefOffsets = new int[n + 1];
+            int prefCount = 0;
+            for (People p : people) prefCount += p.getGenderPreferences().size();
+            int[] prefs = new int[prefCount];
+            prefCount = 0;
+            for (int i = 0; i < n; i++) {
+                gender[i] = genderId(people[i].getGender(), genderIds, genderNames);
+                for (String pref : people[i].getGenderPreferences()) {
+                    prefs[prefCount++] = genderId(pref, genderIds, genderNames);
+                }
+                prefOffsets[i + 1] = prefCount;
+            }
+            out.putStrings(genderNames);
+            out.putInts(gender);
+            out.putInts(prefOffsets);
+            out.putInts(prefs);
+
+            // packed mbti counters [E/I, S/N, F/T, J/P] per person, plus popularity,
+            // as they were when the graph was copied
+            out.putInts(graph.validLikes);
+            out.putInts(graph.mbtiStats);
+            out.putInts(graph.likedBy);
+
+            for (int r = 0; r < Relation.values().length; r++) {
+                out.putInts(graph.offsets[r]);
+                out.putInts(graph.targets[r]);
+            }
+
+            // recommendations as a csr of strings: keys, then every list back to back
+            ArrayList<String> keys = new ArrayList<>(extras.recommendations.keySet());
+            ArrayList<String> values = new ArrayList<>();
+            int[] recOffsets = new int[keys.size() + 1];
+            for (int i = 0; i < keys.size(); i++) {
+                values.addAll(extras.recommendations.get(keys.get(i)));
+                recOffsets[i + 1] = values.size();
+            }
+            out.putStrings(keys);
+            out.putInts(recOffsets);
+            out.putStrings(values);
+            out.putStrings(extras.matchHistory);
+        }
+
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * loads a snapshot into an empty database
+     * @param filename the snapshot file
+     * @param db an empty database, people are bulk inserted and the graph arrays put back as is
+     * @return the extras that were saved with it
+     * @throws IOException if the file can't be read or isn't a valid snapshot
+     */
+    public static Extras read(String filename, AbstractMatchDatabase db) throws IOException {
+        if (db.size() != 0 || db.getRelationshipGraph().idCount() != 0) {
+            throw new IllegalStateException("snapshots can only be loaded into an empty database");
+        }
+
+        ByteBuffer in;
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("snapshot too big to map: " + filename);
+            }
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            if (in.getInt() != MAGIC) throw new IOException(filename + " is not a snapshot");
+            int version = in.getInt();
+            if (version != VERSION) throw new IOException("unsupported snapshot version " + version);
+            int n = in.getInt();
+
+            String[] strings = getStrings(in);
+            String[] genderNames = getStrings(in);
+            int[] gender = getInts(in);
+            int[] prefOffsets = getInts(in);
+            int[] prefs = getInts(in);
+            int[] validLikes = getInts(in);
+            int[] stats = getInts(in);
+            int[] likedBy = getInts(in);
+            if (strings.length != 3 * n || gender.length != n || prefOffsets.length != n + 1
+                    || validLikes.length != n || stats.length != 4 * n || likedBy.length != n) {
+                throw new IOException("corrupt snapshot: " + filename);
+            }
+
+            int relationCount = Relation.values().length;
+            int[][] offsets = new int[relationCount][];
+            int[][] targets = new int[relationCount][];
+            for (int r = 0; r < relationCount; r++) {
+                offsets[r] = getInts(in);
+                targets[r] = getInts(in);
+                checkCsr(offsets[r], targets[r], n, filename);
+            }
+
+            // building the people objects is the only real work left, do it on all cores
+            People[] people = new People[n];
+            IntStream.range(0, n).parallel().forEach(i -> {
+                People p = new People(strings[3 * i], strings[3 * i + 1]);
+                if (!strings[3 * i + 2].isEmpty()) p.setMbtiSelfType(strings[3 * i + 2]);
+                if (gender[i] != NONE) p.setGender(genderNames[gender[i]]);
+
+                ArrayList<String> prefList = new ArrayList<>(prefOffsets[i + 1] - prefOffsets[i]);
+                for (int j = prefOffsets[i]; j < prefOffsets[i + 1]; j++) prefList.add(genderNames[prefs[j]]);
+                p.setGenderPreferences(prefList);
+
+                p.addMbtiLikes(validLikes[i], Arrays.copyOfRange(stats, 4 * i, 4 * i + 4));
+                p.addLikedByCount(likedBy[i]);
+                people[i] = p;
+            });
+
+            db.insertAll(Arrays.asList(people));
+            if (db.getRelationshipGraph().idCount() != n) {
+                throw new IOException("corrupt snapshot, repeated emails: " + filename);
+            }
+            db.getRelationshipGraph().restore(offsets, targets);
+
+            String[] keys = getStrings(in);
+            int[] recOffsets = getInts(in);
+            String[] values = getStrings(in);
+            String[] history = getStrings(in);
+            if (recOffsets.length != keys.length + 1) throw new IOException("corrupt snapshot: " + filename);
+
+            LinkedHashMap<String, List<String>> recommendations = new LinkedHashMap<>();
+            for (int i = 0; i < keys.length; i++) {
+                recommendations.put(keys[i], Arrays.asList(values).subList(recOffsets[i], recOffsets[i + 1]));
+            }
+            return new Extras(recommendations, Arrays.asList(history));
+        } catch (RuntimeException e) {
+            // BufferUnderflowException, bad array indexes, ... all mean the file is broken
+            throw new IOException("corrupt snapshot: " + filename, e);
+        }
+    }
+
+    private static int genderId(String gender, HashMap<String, Integer> ids, ArrayList<String> names) {
+        if (gender == null) return NONE;
+        return ids.computeIfAbsent(gender, g -> {
+            names.add(g);
+            return names.size() - 1;
+        });
+    }
+
+    /**
+     * makes sure saved csr arrays can't point outside the database
+     */
+    private static void checkCsr(int[] offsets, int[] targets, int n, String filename) throws IOException {
+        if (offsets.length != n + 1 || offsets[0] != 0 || offsets[n] != targets.length) {
+            throw new IOException("corrupt snapshot: " + filename);
+        }
+        for (int i = 0; i < n; i++) {
+            if (offsets[i] > offsets[i + 1]) throw new IOException("corrupt snapshot: " + filename);
+        }
+        for (int t : targets) {
+            if (t < 0 || t >= n) throw new IOException("corrupt snapshot: " + filename);
+        }
+    }
+
+    // --- reading ---
+
+    private static int[] getInts(ByteBuffer in) {
+        int len = in.getInt();
+        int[] out = new int[len];
+        in.asIntBuffer().get(out);
+        in.position(in.position() + 4 * len);
+        return out;
+    }
+
+    /**
+     * a string table: count, where each string ends in the blob, then the UTF-8 blob
+     */
+    private static String[] getStrings(ByteBuffer in) {
+        int[] ends = getInts(in);
+        int blobLength = in.getInt();
+        byte[] blob = new byte[blobLength];
+        in.get(blob);
+
+        String[] out = new String[ends.length];
+        IntStream.range(0, ends.length).parallel().forEach(i -> {
+            int start = i == 0 ? 0 : ends[i - 1];
+            out[i] = new String(blob, start, ends[i] - start, StandardCharsets.UTF_8);
+        });
+        return out;
+    }
+
+    // --- writing ---
+
+    /**
+     * buffered big endian writer straight on a file channel
+     */
+    private static class Out implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20);
+
+        Out(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                       StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void putInt(int v) throws IOException {
+            if (buf.remaining() < 4) flush();
+            buf.putInt(v);
+        }
+
+        void putInts(int[] values) throws IOException {
+            putInt(values.length);
+            int i = 0;
+            while (i < values.length) {
+                if (buf.remaining() < 4) flush();
+                int n = Math.min(values.length - i, buf.remaining() / 4);
+                IntBuffer view = buf.asIntBuffer();
+                view.put(values, i, n);
+                buf.position(buf.position() + 4 * n);
+                i += n;
+            }
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            int i = 0;
+            while (i < bytes.length) {
+                if (!buf.hasRemaining()) flush();
+                int n = Math.min(bytes.length - i, buf.remaining());
+                buf.put(bytes, i, n);
+                i += n;
+            }
+        }
+
+        void putStrings(List<String> strings) throws IOException {
+            byte[][] encoded = new byte[strings.size()][];
+            int[] ends = new int[strings.size()];
+            long total = 0;
+            for (int i = 0; i < encoded.length; i++) {
+                encoded[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+                total += encoded[i].length;
+                if (total > Integer.MAX_VALUE) throw new IOException("string table too big for a snapshot");
+                ends[i] = (int) total;
+            }
+            putInts(ends);
+            putInt((int) total);
+            for (byte[] b : encoded) putBytes(b);
+        }
+
+        private void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) channel.write(buf);
+            buf.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.example.datingapp;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * writes users.csv / relationshipsNew.csv style files of any size for load and scale tests
+ *
+ * nothing about the dataset is kept in memory: every user's profile (name, campus, mbti,
+ * gender, preferences) is a pure function of the seed and their number, so when a like
+ * needs to know the target's gender it just recomputes it. users and edges are streamed
+ * straight to a buffered writer, 10M users or a few hundred million edges only cost disk.
+ *
+ * the shape follows the real 2,000 user file:
+ * - mbti types roughly even with ~6% missing, five campus domains
+ * - most people are men into women or women into men, the rest mixes genders and
+ *   multi gender preferences in about the same proportions as users.csv
+ * - likes per user are geometric around --likes, who gets liked follows a power law
+ *   (Zipf, exponent --alpha) over a shuffled ranking so popular people are spread out.
+ *   likes go to people the liker's preferences allow when one is found in a few tries
+ * - a like is answered with a like back with probability --reciprocal (0.06 puts about
+ *   12% of likes in a mutual pair, like the data)
+ * - friend likes are --friends per user, --same-campus of them inside the user's campus
+ *
+ * usage: java -cp target/classes com.example.datingapp.DatasetGenerator --users=1000000
+ *        [--likes=4] [--friends=3.5] [--alpha=0.8] [--reciprocal=0.06] [--same-campus=0.2]
+ *        [--seed=1] [--users-file=big_users.csv] [--relationships-file=big_relationships.csv]
+ * @author Aysegul
+ */
+public class DatasetGenerator {
+
+    private static final String[] FIRST = {
+        "Dakota", "Armando", "Joe", "Jacoby", "Antonio", "Winter", "Ezra", "Alexandra", "Briar", "Karsyn",
+        "Marianna", "Lucy", "Callen", "Lucca", "Anna", "Ben", "Chloe", "Daniel", "Emma", "Felix", "Grace",
+        "Henry", "Isla", "Jack", "Kai", "Mia", "Noah", "Olivia", "Owen", "Priya", "Quinn", "Ruby", "Sam",
+        "Taha", "Uma", "Veronica", "Aysegul", "Jose", "Zoe", "Mateo", "Sofia", "Liam", "Aria", "Leo",
+        "Nora", "Elijah", "Maya", "Hudson", "Layla", "Rowan", "Iris", "Miles", "Hazel", "Jude", "Ivy"};
+    private static final String[] LAST = {
+        "Whitney", "Cline", "Donaldson", "Nolan", "Corona", "Martin", "O'Connor", "O'Connell", "Smith",
+        "Nguyen", "Garcia", "Kim", "Patel", "Johnson", "Lee", "Brown", "Lopez", "Chen", "Wilson", "Davis",
+        "Martinez", "Clark", "Lewis", "Yilmaz", "Walker", "Hall", "Young", "Allen", "Wright", "Scott",
+        "Torres", "Hill", "Flores", "Green", "Adams", "Baker", "Rivera", "Campbell", "Mitchell", "Roberts"};
+    private static final String[] DOMAINS = {
+        "@mymail.pomona.edu", "@students.pitzer.edu", "@hmc.edu", "@scrippscollege.edu",
+        "@students.claremontmckenna.edu"};
+    private static final String[] MBTI = {
+        "ISTJ", "INTJ", "ENFJ", "ESTP", "ESTJ", "ESFJ", "ISFP", "INFJ", "ENTP", "", "ENTJ", "ISFJ",
+        "ESFP", "ISTP", "ENFP", "INTP", "INFP"};
+    private static final int[] MBTI_WEIGHTS = {
+        138, 131, 129, 126, 123, 123, 122, 119, 119, 116, 115, 113, 112, 111, 109, 97, 97};
+    // gender column and preference column share these labels
+    private static final String[] GENDERS = {
+        "men", "women", "non-binary", "men, women", "men, non-binary", "women, non-binary",
+        "men, women, non-binary"};
+    private static final int[] GENDER_WEIGHTS = {823, 795, 188, 53, 51, 47, 43};
+    private static final int[] PREF_WEIGHTS = {669, 703, 138, 137, 109, 128, 116};
+    private static final double STRAIGHT = 0.6; // share of men -> women / women -> men
+    private static final int TARGET_TRIES = 8;
+
+    private final long users;
+    private final double likes;
+    private final double friends;
+    private final double alpha;
+    private final double reciprocal;
+    private final double sameCampus;
+    private final long seed;
+    private final long shuffleStep; // rank -> user is rank * step mod users, step coprime to users
+
+    public DatasetGenerator(long users, double likes, double friends, double alpha,
+                            double reciprocal, double sameCampus, long seed) {
+        this.users = users;
+        this.likes = likes;
+        this.friends = friends;
+        this.alpha = alpha;
+        this.reciprocal = reciprocal;
+        this.sameCampus = sameCampus;
+        this.seed = seed;
+        long step = (mix(seed) >>> 1) % Math.max(1, users) | 1;
+        while (gcd(step, users) != 1) step += 2;
+        this.shuffleStep = step;
+    }
+
+    public static void main(String[] args) throws IOException {
+        long users = 10_000;
+        double likes = 4, friends = 3.5, alpha = 0.8, reciprocal = 0.06, sameCampus = 0.2;
+        long seed = 1;
+        String usersFile = "big_users.csv";
+        String relationshipsFile = "big_relationships.csv";
+
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) throw new IllegalArgumentException("expected --name=value, got " + arg);
+            String name = arg.substring(2, eq);
+            String value = arg.substring(eq + 1);
+            switch (name) {
+                case "users" -> users = Long.parseLong(value.replace("_", ""));
+                case "likes" -> likes = Double.parseDouble(value);
+                case "friends" -> friends = Double.parseDouble(value);
+                case "alpha" -> alpha = Double.parseDouble(value);
+                case "reciprocal" -> reciprocal = Double.parseDouble(value);
+                case "same-campus" -> sameCampus = Double.parseDouble(value);
+                case "seed" -> seed = Long.parseLong(value);
+                case "users-file" -> usersFile = value;
+                case "relationships-file" -> relationshipsFile = value;
+                default -> throw new IllegalArgumentException("unknown option --" + name);
+            }
+        }
+        if (users < 1 || users > 899_999_999L) throw new IllegalArgumentException("--users must be 1..899999999");
+
+        DatasetGenerator generator = new DatasetGenerator(users, likes, friends, alpha, reciprocal, sameCampus, seed);
+        long start = System.nanoTime();
+        generator.writeUsers(Path.of(usersFile));
+        long edges = generator.writeRelationships(Path.of(relationshipsFile));
+        System.out.printf("Wrote %,d users to %s and %,d relationships to %s in %.1fs%n",
+                          users, usersFile, edges, relationshipsFile, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * streams the users file, same columns as users.csv
+     */
+    public void writeUsers(Path file) throws IOException {
+        try (BufferedWriter out = writer(file)) {
+            out.write("id,first_name,last_name,email,mbti,self identified gender,matching gender preferences\n");
+            StringBuilder line = new StringBuilder(128);
+            for (long id = 0; id < users; id++) {
+                long h = profileHash(id);
+                line.setLength(0);
+                line.append(100000 + id).append(',')
+                    .append(FIRST[(int) ((h >>> 33) % FIRST.length)]).append(',')
+                    .append(LAST[(int) ((h >>> 45) % LAST.length)]).append(',');
+                appendEmail(line, id);
+                line.append(',').append(MBTI[pick(MBTI_WEIGHTS, h >>> 20)]).append(',');
+                appendQuoted(line, GENDERS[gender(id)]);
+                line.append(',');
+                appendQuoted(line, GENDERS[preference(id)]);
+                line.append('\n');
+                out.append(line);
+                progress("users", id);
+            }
+        }
+    }
+
+    /**
+     * streams the relationships file, same columns as relationshipsNew.csv
+     * @return how many rows were written
+     */
+    public long writeRelationships(Path file) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed * 31 + 7);
+        long rows = 0;
+        try (BufferedWriter out = writer(file)) {
+            out.write("source_email,relationship_type,target_email\n");
+            StringBuilder line = new StringBuilder(128);
+            for (long id = 0; id < users; id++) {
+                int likeCount = geometric(random, likes);
+                for (int k = 0; k < likeCount; k++) {
+                    long target = likeTarget(random, id);
+                    if (target == id) continue;
+                    rows += row(out, line, id, "like", target);
+                    if (random.nextDouble() < reciprocal) {
+                        rows += row(out, line, target, "like", id);
+                    }
+                }
+                int friendCount = geometric(random, friends);
+                for (int k = 0; k < friendCount; k++) {
+                    long target = friendTarget(random, id);
+                    if (target == id) continue;
+                    rows += row(out, line, id, "friend", target);
+                    if (random.nextDouble() < reciprocal) {
+                        rows += row(out, line, target, "friend", id);
+                    }
+                }
+                progress("relationship sources", id);
+            }
+        }
+        return rows;
+    }
+
+    // --- who likes who ---
+
+    /**
+     * a popular person (power law) whose gender the liker wants, or the last try
+     */
+    private long likeTarget(SplittableRandom random, long liker) {
+        int wanted = preference(liker);
+        long target = popular(random);
+        for (int t = 1; t < TARGET_TRIES && !fits(gender(target), wanted); t++) {
+            target = popular(random);
+        }
+        return target;
+    }
+
+    /**
+     * anyone, often from the same campus
+     */
+    private long friendTarget(SplittableRandom random, long user) {
+        long target = random.nextLong(users);
+        if (random.nextDouble() < sameCampus) {
+            int campus = campus(user);
+            for (int t = 1; t < TARGET_TRIES && campus(target) != campus; t++) {
+                target = random.nextLong(users);
+            }
+        }
+        return target;
+    }
+
+    /**
+     * draws a popularity rank from a Zipf distribution by inverting its continuous cdf,
+     * then maps the rank to a user through a fixed shuffle
+     */
+    private long popular(SplittableRandom random) {
+        double u = random.nextDouble();
+        double rank;
+        if (Math.abs(alpha - 1.0) < 1e-9) {
+            rank = Math.exp(u * Math.log(users + 1.0)) - 1;
+        } else {
+            double a = 1.0 - alpha;
+            rank = Math.pow(u * (Math.pow(users + 1.0, a) - 1) + 1, 1.0 / a) - 1;
+        }
+        long r = Math.min(users - 1, Math.max(0, (long) rank));
+        return r * shuffleStep % users; // both < 1e9, can't overflow
+    }
+
+    /**
+     * true if a person of gender label g is in the preference label p
+     * (labels are GENDERS indexes, multi gender labels count if any part matches)
+     */
+    private static boolean fits(int g, int p) {
+        return (GENDER_BITS[g] & GENDER_BITS[p]) != 0;
+    }
+
+    // men = 1, women = 2, non-binary = 4, per GENDERS entry
+    private static final int[] GENDER_BITS = {1, 2, 4, 3, 5, 6, 7};
+
+    // --- per user attributes, recomputed from (seed, id) whenever needed ---
+
+    /**
+     * the random bits everything about a user is derived from
+     */
+    private long profileHash(long id) {
+        return mix(seed ^ (id * 0x9E3779B97F4A7C15L));
+    }
+
+    private int gender(long id) {
+        long h = profileHash(id);
+        if (unit(h >>> 8) < STRAIGHT) return (h & 1) == 0 ? 0 : 1;
+        return pick(GENDER_WEIGHTS, h >>> 4);
+    }
+
+    private int preference(long id) {
+        long h = profileHash(id);
+        if (unit(h >>> 8) < STRAIGHT) return (h & 1) == 0 ? 1 : 0; // the other one
+        return pick(PREF_WEIGHTS, mix(h) >>> 4);
+    }
+
+    private int campus(long id) {
+        return (int) ((mix(profileHash(id) + 1) >>> 33) % DOMAINS.length);
+    }
+
+    private void appendEmail(StringBuilder line, long id) {
+        line.append("example").append(100000 + id).append(DOMAINS[campus(id)]);
+    }
+
+    // --- helpers ---
+
+    private long row(BufferedWriter out, StringBuilder line, long from, String type, long to) throws IOException {
+        line.setLength(0);
+        appendEmail(line, from);
+        line.append(',').append(type).append(',');
+        appendEmail(line, to);
+        line.append('\n');
+        out.append(line);
+        return 1;
+    }
+
+    private static void appendQuoted(StringBuilder line, String value) {
+        if (value.indexOf(',') >= 0) {
+            line.append('"').append(value).append('"');
+        } else {
+            line.append(value);
+        }
+    }
+
+    /**
+     * index into weights, chosen with the low bits of bits
+     */
+    private static int pick(int[] weights, long bits) {
+        int total = 0;
+        for (int w : weights) total += w;
+        long x = (bits & 0xFFFFFFFFL) % total;
+        for (int i = 0; i < weights.length; i++) {
+            x -= weights[i];
+            if (x < 0) return i;
+        }
+        return weights.length - 1;
+    }
+
+    /**
+     * geometric number of events with the given mean (0 allowed)
+     */
+    private static int geometric(SplittableRandom random, double mean) {
+        if (mean <= 0) return 0;
+        double q = 1.0 / (mean + 1.0);
+        return (int) Math.floor(Math.log(1.0 - random.nextDouble()) / Math.log(1.0 - q));
+    }
+
+    private static double unit(long bits) {
+        return (bits & 0xFFFFFF) / (double) (1 << 24);
+    }
+
+    // splitmix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    private static BufferedWriter writer(Path file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8), 1 << 20);
+    }
+
+    private void progress(String what, long id) {
+        if ((id + 1) % 1_000_000 == 0) {
+            System.out.printf("  %,d / %,d %s%n", id + 1, users, what);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.datingapp;
+
+/**
+ * how a hash table turns an email into an int, pluggable so we can see which one clusters
+ * least on our emails (they all end in a few college domains and start with exampleNNNNNN)
+ *
+ * tables take the hash modulo their size (PeopleHashTable) or use its low bits
+ * (RobinHoodPeopleTable), so a strategy should spread differences anywhere in the email
+ * over the low bits. compare them on the live data with GET /api/admin/hash-stats
+ * @author Taha
+ */
+public interface EmailHashStrategy {
+
+    /**
+     * @param email the key, never null
+     * @return any int, tables reduce it to a slot themselves
+     */
+    int hash(String email);
+
+    /**
+     * the name used in configuration and in the stats
+     */
+    String name();
+
+    /**
+     * the 27 polynomial from class: h = 27 * h + c over the whole email. the last few chars
+     * (the shared domain) end up in the low digits so neighbouring emails land close together
+     */
+    EmailHashStrategy POLYNOMIAL_27 = new EmailHashStrategy() {
+        public int hash(String email) {
+            int h = 0;
+            for (int i = 0; i < email.length(); i++) {
+                h = 27 * h + email.charAt(i);
+            }
+            return h;
+        }
+
+        public String name() {
+            return "polynomial27";
+        }
+    };
+
+    /**
+     * murmur3 (32 bit) over the chars, two chars per block, with the full finalizer.
+     * every input bit affects every output bit, costs a pass over the email every time
+     */
+    EmailHashStrategy MURMUR3 = new EmailHashStrategy() {
+        public int hash(String email) {
+            int h = 0x9747B28C;
+            int n = email.length();
+            int i = 0;
+            for (; i + 1 < n; i += 2) {
+                int k = email.charAt(i) | (email.charAt(i + 1) << 16);
+                h ^= mixK(k);
+                h = Integer.rotateLeft(h, 13) * 5 + 0xE6546B64;
+            }
+            if (i < n) h ^= mixK(email.charAt(i));
+            return fmix32(h ^ (n * 2));
+        }
+
+        private int mixK(int k) {
+            k *= 0xCC9E2D51;
+            k = Integer.rotateLeft(k, 15);
+            return k * 0x1B873593;
+        }
+
+        public String name() {
+            return "murmur3";
+        }
+    };
+
+    /**
+     * String.hashCode (cached inside the String after the first call, so lookups don't walk
+     * the email again) with a multiply + shift finalizer to spread it over the low bits
+     */
+    EmailHashStrategy STRING_HASH_MIXED = new EmailHashStrategy() {
+        public int hash(String email) {
+            int h = email.hashCode() * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        public String name() {
+            return "stringhash";
+        }
+    };
+
+    /**
+     * murmur3's 32 bit finalizer
+     */
+    static int fmix32(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * every built in strategy, in the order the stats list them
+     */
+    static EmailHashStrategy[] builtins() {
+        return new EmailHashStrategy[] {POLYNOMIAL_27, MURMUR3, STRING_HASH_MIXED};
+    }
+
+    /**
+     * looks a built in strategy up by name
+     * @param name polynomial27, murmur3 or stringhash
+     * @return the strategy
+     * @throws IllegalArgumentException if there is none with that name
+     */
+    static EmailHashStrategy named(String name) {
+        for (EmailHashStrategy s : builtins()) {
+            if (s.name().equalsIgnoreCase(name.trim())) return s;
+        }
+        throw new IllegalArgumentException("unknown hash strategy: " + name);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.datingapp;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * gives every distinct gender label a small int id so gender checks are bit tests
+ * instead of string compares
+ *
+ * there are only a handful of labels ("men", "women", "non-binary", ...) but people can
+ * type new ones when they register, so the dictionary grows on demand. ids are handed out
+ * in the order labels are first seen and never change while the app runs, they are not
+ * stable between runs so nothing on disk stores them
+ * @author Aysegul
+ */
+public final class GenderDictionary {
+
+    private static final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+    private GenderDictionary() {}
+
+    /**
+     * the id of a label, a new label gets the next free id
+     * @param gender the lower case label
+     * @return its id (0, 1, 2, ...)
+     */
+    public static int idOf(String gender) {
+        Integer id = ids.get(gender);
+        if (id != null) return id;
+        return register(gender);
+    }
+
+    // new labels are rare, one lock keeps two of them from getting the same id
+    private static synchronized int register(String gender) {
+        Integer id = ids.get(gender);
+        if (id != null) return id;
+        int next = ids.size();
+        ids.put(gender, next);
+        return next;
+    }
+}
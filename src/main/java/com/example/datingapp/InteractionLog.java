@@ -0,0 +1,423 @@
+package com.example.datingapp;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * append only log of everything the web app changes (registrations, likes, friend likes)
+ * so a restart doesn't lose them
+ *
+ * - records go to numbered segment files in one directory, a new segment is started when
+ *   the current one gets big and on every open
+ * - group commit: request threads hand their record to one writer thread and wait, the
+ *   writer takes everything that queued up while the last fsync was running, writes it in
+ *   one go and fsyncs once for the whole batch. so many requests share one disk flush
+ * - every record is framed as [length][crc32][kind][fields], replay stops at a torn or
+ *   broken record at the end of a segment (a crash in the middle of a write)
+ * - compaction rolls to a fresh segment, saves a new baseline (snapshot) and deletes the
+ *   older segments. every record only adds something that isn't there yet, so replaying
+ *   a record the baseline already has changes nothing and a crash halfway is harmless
+ *
+ * append holds a shared lock until the change is applied and compaction takes it
+ * exclusively while it rolls and writes the baseline, so the baseline has every record of
+ * the old segments and none of the new one (appends wait meanwhile)
+ * @author Taha
+ */
+public class InteractionLog implements Closeable {
+
+    /**
+     * what a record does
+     */
+    public enum Kind { REGISTER, LIKE, FRIEND }
+
+    /**
+     * one logged change, fields depend on the kind:
+     * REGISTER: name, email, mbti, gender, gender preferences (any can be null)
+     * LIKE / FRIEND: source email, target email
+     */
+    public static class Entry {
+        public final Kind kind;
+        public final String[] fields;
+
+        private Entry(Kind kind, String... fields) {
+            this.kind = kind;
+            this.fields = fields;
+        }
+
+        public static Entry register(String name, String email, String mbti, String gender, String genderPrefs) {
+            return new Entry(Kind.REGISTER, name, email, mbti, gender, genderPrefs);
+        }
+
+        public static Entry like(String sourceEmail, String targetEmail) {
+            return new Entry(Kind.LIKE, sourceEmail, targetEmail);
+        }
+
+        public static Entry friend(String sourceEmail, String targetEmail) {
+            return new Entry(Kind.FRIEND, sourceEmail, targetEmail);
+        }
+    }
+
+    private static final String PREFIX = "interactions-";
+    private static final String SUFFIX = ".log";
+    private static final long SEGMENT_BYTES = 64L << 20;
+    private static final int MAX_BATCH = 4096;
+    private static final int HEADER = 8; // length + crc
+
+    private final Path dir;
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final ReentrantReadWriteLock gate = new ReentrantReadWriteLock();
+    private final Object channelLock = new Object();
+    private final Thread writer;
+
+    // only touched with channelLock held
+    private FileChannel channel;
+    private long segment;
+    private long segmentBytes;
+    private volatile boolean closed = false;
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    private static class Pending {
+        final byte[] frame;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Pending(byte[] frame) {
+            this.frame = frame;
+        }
+    }
+
+    private static final Pending STOP = new Pending(new byte[0]);
+
+    /**
+     * opens the log in dir (created if needed), new records go to a fresh segment
+     * call replay first if the old records are needed
+     * @param dir directory holding the segments
+     * @throws IOException if the directory or segment can't be created
+     */
+    public InteractionLog(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+        List<Long> existing = segments();
+        openSegment(existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1);
+        totalBytes.set(diskBytes());
+
+        writer = new Thread(this::writeLoop, "interaction-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * feeds every intact record from every segment to apply, oldest first
+     * @param dir directory holding the segments
+     * @param apply what to do with each record
+     * @return how many records were replayed
+     * @throws IOException if a segment can't be read
+     */
+    public static int replay(Path dir, Consumer<Entry> apply) throws IOException {
+        if (!Files.isDirectory(dir)) return 0;
+        int count = 0;
+        for (long seg : segments(dir)) {
+            byte[] data = Files.readAllBytes(segmentPath(dir, seg));
+            ByteBuffer buf = ByteBuffer.wrap(data);
+            while (buf.remaining() >= HEADER) {
+                int length = buf.getInt();
+                int crc = buf.getInt();
+                if (length <= 0 || length > buf.remaining() || crc != crc(data, buf.position(), length)) {
+                    System.out.println("Interaction log: stopped at a torn record in " + segmentPath(dir, seg));
+                    break;
+                }
+                Entry entry;
+                try {
+                    entry = decode(data, buf.position(), length);
+                } catch (RuntimeException e) {
+                    System.out.println("Interaction log: unreadable record in " + segmentPath(dir, seg));
+                    break;
+                }
+                apply.accept(entry);
+                buf.position(buf.position() + length);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * logs the record, waits until it is on disk, then applies it
+     * @param entry the change
+     * @param apply makes the change in memory, runs after the record is durable
+     * @return whatever apply returns
+     * @throws IOException if the record couldn't be written, apply is not run then
+     */
+    public <T> T append(Entry entry, Supplier<T> apply) throws IOException {
+        gate.readLock().lock();
+        try {
+            if (closed) throw new IOException("interaction log is closed");
+            Pending pending = new Pending(encode(entry));
+            queue.add(pending);
+            try {
+                // not interruptible on purpose: once queued the record will be written, so
+                // giving up here would leave it on disk but not in memory
+                pending.done.join();
+            } catch (CompletionException e) {
+                throw new IOException("interaction log write failed", e.getCause());
+            }
+            return apply.get();
+        } finally {
+            gate.readLock().unlock();
+        }
+    }
+
+    /**
+     * logs several records as one write, waits until all of them are on disk, then applies
+     * them. the frames go to the writer together, so a whole batch costs one queue hand off
+     * and one fsync wait instead of one per record. replay sees them as separate records
+     * @param entries the changes, in the order apply makes them
+     * @param apply makes all the changes in memory, runs after every record is durable
+     * @return whatever apply returns
+     * @throws IOException if the records couldn't be written, apply is not run then
+     */
+    public <T> T appendAll(List<Entry> entries, Supplier<T> apply) throws IOException {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream(entries.size() * 64);
+        for (Entry entry : entries) frames.writeBytes(encode(entry));
+
+        gate.readLock().lock();
+        try {
+            if (closed) throw new IOException("interaction log is closed");
+            Pending pending = new Pending(frames.toByteArray());
+            queue.add(pending);
+            try {
+                pending.done.join(); // not interruptible, same reason as in append
+            } catch (CompletionException e) {
+                throw new IOException("interaction log write failed", e.getCause());
+            }
+            return apply.get();
+        } finally {
+            gate.readLock().unlock();
+        }
+    }
+
+    /**
+     * folds the log into a new baseline: starts a new segment, runs saveBaseline (which
+     * should write a snapshot of everything in memory), then deletes the older segments
+     * @param saveBaseline writes the snapshot
+     * @throws IOException if the new segment or the baseline can't be written, nothing is deleted then
+     */
+    public void compact(IOAction saveBaseline) throws IOException {
+        long firstKept;
+        gate.writeLock().lock();
+        try {
+            // no append is in flight now, everything logged so far is applied
+            synchronized (channelLock) {
+                openSegment(segment + 1);
+                firstKept = segment;
+            }
+            // appends wait until the baseline is written, so it holds exactly the records
+            // in the segments about to be deleted and nothing from the new one
+            saveBaseline.run();
+        } finally {
+            gate.writeLock().unlock();
+        }
+
+        for (long seg : segments()) {
+            if (seg < firstKept) {
+                Path file = segmentPath(dir, seg);
+                long size = Files.size(file);
+                Files.delete(file);
+                totalBytes.addAndGet(-size);
+            }
+        }
+    }
+
+    /**
+     * a step that can throw IOException (Runnable can't)
+     */
+    public interface IOAction {
+        void run() throws IOException;
+    }
+
+    /**
+     * bytes in all segments together, cheap enough to check after every append
+     */
+    public long sizeBytes() {
+        return totalBytes.get();
+    }
+
+    private long diskBytes() throws IOException {
+        long total = 0;
+        for (long seg : segments()) total += Files.size(segmentPath(dir, seg));
+        return total;
+    }
+
+    /**
+     * stops the writer after it flushed what is queued, later appends fail
+     */
+    @Override
+    public void close() throws IOException {
+        gate.writeLock().lock();
+        try {
+            closed = true;
+            // no append is in flight, the pill is the last thing the writer sees.
+            // interrupting it instead could land in the middle of a write and close the channel
+            queue.add(STOP);
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (channelLock) {
+                channel.close();
+            }
+        } finally {
+            gate.writeLock().unlock();
+        }
+    }
+
+    // --- writer thread ---
+
+    private void writeLoop() {
+        ArrayList<Pending> batch = new ArrayList<>();
+        boolean stop = false;
+        while (!stop) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            // everything that queued up while we were waiting rides along on this fsync
+            queue.drainTo(batch, MAX_BATCH - 1);
+            stop = batch.remove(STOP);
+            if (batch.isEmpty()) continue;
+
+            try {
+                writeBatch(batch);
+                for (Pending p : batch) p.done.complete(null);
+            } catch (IOException e) {
+                for (Pending p : batch) p.done.completeExceptionally(e);
+            }
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<Pending> batch) throws IOException {
+        int total = 0;
+        for (Pending p : batch) total += p.frame.length;
+        ByteBuffer buf = ByteBuffer.allocate(total);
+        for (Pending p : batch) buf.put(p.frame);
+        buf.flip();
+
+        synchronized (channelLock) {
+            while (buf.hasRemaining()) channel.write(buf);
+            channel.force(false);
+            segmentBytes += total;
+            totalBytes.addAndGet(total);
+            if (segmentBytes >= SEGMENT_BYTES) {
+                openSegment(segment + 1);
+            }
+        }
+    }
+
+    /**
+     * closes the current segment and starts number seg, caller holds channelLock (or is the constructor)
+     */
+    private void openSegment(long seg) throws IOException {
+        FileChannel next = FileChannel.open(segmentPath(dir, seg), StandardOpenOption.CREATE,
+                                            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (channel != null) channel.close();
+        channel = next;
+        segment = seg;
+        segmentBytes = next.size();
+    }
+
+    // --- segments ---
+
+    private List<Long> segments() throws IOException {
+        return segments(dir);
+    }
+
+    private static List<Long> segments(Path dir) throws IOException {
+        ArrayList<Long> out = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(f -> {
+                String name = f.getFileName().toString();
+                if (name.startsWith(PREFIX) && name.endsWith(SUFFIX)) {
+                    try {
+                        out.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                    } catch (NumberFormatException ignored) {
+                        // not one of ours
+                    }
+                }
+            });
+        }
+        out.sort(null);
+        return out;
+    }
+
+    private static Path segmentPath(Path dir, long seg) {
+        return dir.resolve(String.format("%s%08d%s", PREFIX, seg, SUFFIX));
+    }
+
+    // --- record format ---
+
+    private static byte[] encode(Entry entry) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0); // length, filled in below
+            out.writeInt(0); // crc
+            out.writeByte(entry.kind.ordinal());
+            out.writeByte(entry.fields.length);
+            for (String field : entry.fields) {
+                if (field == null) {
+                    out.writeInt(-1);
+                } else {
+                    byte[] utf8 = field.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(utf8.length);
+                    out.write(utf8);
+                }
+            }
+            byte[] frame = bytes.toByteArray();
+            int length = frame.length - HEADER;
+            ByteBuffer.wrap(frame).putInt(length).putInt(crc(frame, HEADER, length));
+            return frame;
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // a ByteArrayOutputStream can't fail
+        }
+    }
+
+    private static Entry decode(byte[] data, int start, int length) {
+        ByteBuffer buf = ByteBuffer.wrap(data, start, length);
+        Kind kind = Kind.values()[buf.get()];
+        String[] fields = new String[buf.get()];
+        for (int i = 0; i < fields.length; i++) {
+            int len = buf.getInt();
+            if (len >= 0) {
+                fields[i] = new String(data, buf.position(), len, StandardCharsets.UTF_8);
+                buf.position(buf.position() + len);
+            }
+        }
+        return new Entry(kind, fields);
+    }
+
+    private static int crc(byte[] data, int start, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, start, length);
+        return (int) crc.getValue();
+    }
+}
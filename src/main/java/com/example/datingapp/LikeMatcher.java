@@ -1,93 +1,278 @@
 package com.example.datingapp;
-import java.util.ArrayList;
+import com.example.datingapp.RelationshipGraph.Relation;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 /**
  * This class handles sending romantic and friendship likes, and checks for matches based on these likes.
  * @author Aysegul
  */
 
+/**
+ * Likes can come in from several request threads at once, so both people's lanes are
+ * locked while their lists are checked and updated. A lane is one of a fixed set of
+ * ReentrantLocks picked by user id, and the lower lane is always locked first, so two
+ * people liking each other at the same moment take turns (the second one sees the first
+ * like and makes the match) and can't deadlock. ReentrantLock instead of synchronized so
+ * a virtual thread waiting for a lane gives its carrier thread back.
+ */
+
 public class LikeMatcher {
 
+    // power of two so a lane is picked with a mask, plenty to keep unrelated users apart
+    private static final int LANES = 1024;
+    private static final ReentrantLock[] lanes = new ReentrantLock[LANES];
+    static {
+        for (int i = 0; i < LANES; i++) lanes[i] = new ReentrantLock();
+    }
+
     private People liker;
-    private String myEmail;
 
     public LikeMatcher(People p){
         liker = p;
-        myEmail = p.getEmail();
     }
 
 
     /**
      * when you like someone, updates your liked list, updates your mbti preferences
-     * calls isMatch() to see if there is a match anytime you send a like
+     * and their popularity, then calls isMatch() to see if there is a match
+     * liking the same person again (or someone you already matched) changes nothing
      * @param p the person you liked
+     * @return true if this like created a new match
      */
-    public void RomanticLiker(People p){
+    public boolean RomanticLiker(People p){
+        if(p == liker) return false; // can't match with yourself
+
+        ReentrantLock first = lanes[Math.min(laneOf(liker), laneOf(p))];
+        ReentrantLock second = lanes[Math.max(laneOf(liker), laneOf(p))];
+        first.lock();
+        second.lock(); // same lane twice is fine, the lock is reentrant
+        try {
+            return romanticLike(p);
+        } finally {
+            second.unlock();
+            first.unlock();
+        }
+    }
+
+    private boolean romanticLike(People p){
+        //add the person you liked to the list, stop if it's a repeat
+        if(liker.isLikeMatchedWith(p) || !liker.addLike(p)){
+            return false;
+        }
 
         //update the mbti preference stats based on who you like
         liker.updateMbtiStats(p.getMbtiRaw());
-
-        String likeeEmail = p.getEmail();
-
-        //add the person you liked emails to the list
-        liker.addLikedEmail(likeeEmail);
+        p.incrementLikedByCount();
 
         //call isMatch with true, so match knows what to match romantically
         if(isMatch(p, true)){
             //add each other to matches list
-            liker.addLikedEmailMatch(likeeEmail);
-            p.addLikedEmailMatch(myEmail);
+            liker.addLikeMatch(p);
+            p.addLikeMatch(liker);
 
             //remove them from the liked list
-            p.getLikedEmails().remove(myEmail);
-            liker.getLikedEmails().remove(likeeEmail);
+            p.removeLike(liker);
+            liker.removeLike(p);
+            return true;
         }
-        
+        return false;
     }
 
     /**
      * when you friend like someone, updates your friend list
      * calls isMatch() to see if there is a match anytime you send a friendlike
+     * repeats are ignored the same way as in RomanticLiker
      * @param p the person you friend liked
+     * @return true if this friend like created a new friend match
      */
-    public void FriendLiker(People p){
-        String friendEmail = p.getEmail();
+    public boolean FriendLiker(People p){
+        if(p == liker) return false;
+
+        ReentrantLock first = lanes[Math.min(laneOf(liker), laneOf(p))];
+        ReentrantLock second = lanes[Math.max(laneOf(liker), laneOf(p))];
+        first.lock();
+        second.lock(); // same lane twice is fine, the lock is reentrant
+        try {
+            return friendLike(p);
+        } finally {
+            second.unlock();
+            first.unlock();
+        }
+    }
 
-        liker.addFriendEmail(friendEmail);
-        //call isMatch with true, so match knows what to match friends
+    private boolean friendLike(People p){
+        if(liker.isFriendMatchedWith(p) || !liker.addFriendLike(p)){
+            return false;
+        }
+        //call isMatch with false, so match knows what to match friends
         if(isMatch(p, false)){
             //add each other to matches list
-            liker.addFriendEmailMatch(friendEmail);
-            p.addFriendEmailMatch(myEmail);
+            liker.addFriendMatch(p);
+            p.addFriendMatch(liker);
 
-            p.getFriendEmails().remove(myEmail);
-            liker.getFriendEmails().remove(friendEmail);
+            p.removeFriendLike(liker);
+            liker.removeFriendLike(p);
+            return true;
         }
+        return false;
     }
 
 
+    /**
+     * replays a whole file worth of likes (or friend likes) at once, ends up exactly like
+     * calling RomanticLiker / FriendLiker for every edge, but:
+     * - the edges are grouped by source with counting sorts, so repeats and likes that are
+     *   already in the graph are dropped in one pass
+     * - mutual likes are found with a sorted join: (a, b) is a match when b's sorted row
+     *   of new likes has a, or the graph already had b -> a
+     * - mbti stats are updated once per liker and popularity once per person liked
+     * - the graph gets the new edges in one rebuild per relation
+     * linear in the number of edges (plus a binary search in the reverse row per edge).
+     * meant for loading, doesn't take the lanes
+     * @param graph the graph of the database everyone is in
+     * @param from ids of the likers
+     * @param to ids of the people they liked, to[i] goes with from[i]
+     * @param count how many entries of from / to are used
+     * @param romantic true for likes, false for friend likes
+     * @return how many new matches were made
+     */
+    public static int likeAll(RelationshipGraph graph, int[] from, int[] to, int count, boolean romantic) {
+        Relation likeRel = romantic ? Relation.LIKE : Relation.FRIEND;
+        Relation matchRel = romantic ? Relation.LIKE_MATCH : Relation.FRIEND_MATCH;
+        int ids = graph.idCount();
+
+        // group by liker, sorted and without repeats
+        CsrAdjacency batch = CsrAdjacency.fromEdges(ids, from, to, count);
+        int[] offsets = batch.baseOffsets();
+        int[] targets = batch.baseTargets();
+
+        // keep only likes that would change something (same checks as romanticLike)
+        int[] newOffsets = new int[ids + 1];
+        int kept = 0;
+        for (int a = 0; a < ids; a++) {
+            int start = offsets[a];
+            int end = offsets[a + 1];
+            newOffsets[a] = kept;
+            if (start == end || graph.person(a) == null) continue;
+            for (int i = start; i < end; i++) {
+                int b = targets[i];
+                if (b == a || graph.person(b) == null) continue;
+                if (graph.contains(likeRel, a, b) || graph.contains(matchRel, a, b)) continue;
+                targets[kept++] = b;
+            }
+        }
+        newOffsets[ids] = kept;
+        CsrAdjacency fresh = new CsrAdjacency(newOffsets, targets);
+
+        int[] likeFrom = new int[kept];
+        int[] likeTo = new int[kept];
+        int likes = 0;
+        int[] matchFrom = new int[2 * kept];
+        int[] matchTo = new int[2 * kept];
+        int matches = 0;
+        int newMatches = 0;
+        int[] likedBy = romantic ? new int[ids] : null;
+        int[] axisVotes = new int[4];
+
+        for (int a = 0; a < ids; a++) {
+            int start = newOffsets[a];
+            int end = newOffsets[a + 1];
+            if (start == end) continue;
+            int typed = 0;
+            Arrays.fill(axisVotes, 0);
+
+            for (int i = start; i < end; i++) {
+                int b = targets[i];
+
+                if (romantic) {
+                    likedBy[b]++;
+                    People liked = graph.person(b);
+                    if (liked.hasMbtiType()) {
+                        typed++;
+                        int mask = liked.getMbtiSelfMask();
+                        for (int k = 0; k < 4; k++) {
+                            axisVotes[k] += ((mask >> k) & 1) == 1 ? 1 : -1;
+                        }
+                    }
+                }
+
+                if (fresh.contains(b, a)) {
+                    // both likes are in this batch, b's side adds the other direction
+                    matchFrom[matches] = a;
+                    matchTo[matches++] = b;
+                    if (a < b) newMatches++;
+                } else if (graph.contains(likeRel, b, a)) {
+                    // b already liked a before this batch
+                    matchFrom[matches] = a;
+                    matchTo[matches++] = b;
+                    matchFrom[matches] = b;
+                    matchTo[matches++] = a;
+                    graph.remove(likeRel, b, a);
+                    newMatches++;
+                } else {
+                    likeFrom[likes] = a;
+                    likeTo[likes++] = b;
+                }
+            }
+
+            if (typed > 0) {
+                graph.person(a).addMbtiLikes(typed, axisVotes);
+            }
+        }
+
+        if (romantic) {
+            for (int b = 0; b < ids; b++) {
+                if (likedBy[b] > 0) graph.person(b).addLikedByCount(likedBy[b]);
+            }
+        }
+
+        graph.addAll(likeRel, likeFrom, likeTo, likes);
+        graph.addAll(matchRel, matchFrom, matchTo, matches);
+        return newMatches;
+    }
+
+    /**
+     * runs action while holding every lane, so no RomanticLiker / FriendLiker is in the
+     * middle of its updates (snapshots use this to copy a state every like is either fully
+     * in or fully out of). lanes are taken lowest first like everywhere else
+     * @param action what to run with likes paused
+     * @return what action returned
+     */
+    public static <T> T withAllLanes(Supplier<T> action){
+        int locked = 0;
+        try {
+            for (; locked < LANES; locked++) lanes[locked].lock();
+            return action.get();
+        } finally {
+            while (locked > 0) lanes[--locked].unlock();
+        }
+    }
+
+    /**
+     * the lane of a person, their user id in the database. people outside a database
+     * (no id) use their email instead
+     * @param p the person
+     * @return index into lanes
+     */
+    private static int laneOf(People p){
+        int id = p.getId();
+        int key = id >= 0 ? id : EmailHashStrategy.fmix32(p.getEmail().hashCode());
+        return key & (LANES - 1);
+    }
+
     /**
      * checks to see if there is a match
      * @param p the person you liked 
      * @param b to decide for searching a romantic or a friendship match
      */
     private boolean isMatch(People p, boolean b){
-        
+        // a lookup in their row of the relationship graph instead of walking a list
         if(b){
-            for(String email : p.getLikedEmails()){
-                if(email.equals(myEmail)){
-                    return true;
-                }
-            }     
-        }
-        else{
-            for(String email : p.getFriendEmails()){
-                if(email.equals(myEmail)){
-                    return true;
-                }
-            }  
+            return p.hasLiked(liker);
         }
-        return false;
+        return p.hasFriendLiked(liker);
     }
 
     public static void main(String[] args) {
@@ -96,6 +281,13 @@ public class LikeMatcher {
         People taha = new People("taha", "taha email.com");
         People veronica = new People("Aysegul", "veronica@mymail.com");
 
+        // likes are kept in the graph of the database people are in
+        ConcurrentPeopleTable db = new ConcurrentPeopleTable();
+        db.insert(aysegul);
+        db.insert(kula);
+        db.insert(taha);
+        db.insert(veronica);
+
         LikeMatcher ayM = new LikeMatcher(aysegul);
         LikeMatcher kulaM = new LikeMatcher(kula);
         LikeMatcher tahaM = new LikeMatcher(taha);
@@ -17,7 +17,9 @@ public class Main {
      * @param args arguments passed to the program
      */
     public static void main(String[] args) {
-        PeopleHashTable database = new PeopleHashTable();
+        // -Ddatingapp.database.hash=murmur3 (or stringhash) tries another email hash
+        EmailHashStrategy hash = EmailHashStrategy.named(System.getProperty("datingapp.database.hash", "polynomial27"));
+        PeopleHashTable database = new PeopleHashTable(11, hash);
         
         // Load your data
         database.loadPeopleFromCSV("userTest.csv");
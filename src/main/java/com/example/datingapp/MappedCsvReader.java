@@ -0,0 +1,121 @@
+package com.example.datingapp;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * shared plumbing for the csv loaders
+ *
+ * the file is memory mapped (in segments, a single mapping can't pass 2GB), each segment is
+ * cut into chunks at line breaks and every chunk is handed to the parser on its own core.
+ * a chunk is pulled out of the mapping with one bulk copy into a byte[] that always starts
+ * at a line start and ends right after a newline (or at the end of the file).
+ * the header line is skipped and the results come back in file order.
+ * @author Taha
+ */
+class MappedCsvReader {
+
+    private static final long MAX_SEGMENT = 1L << 30;
+    private static final int MIN_CHUNK = 1 << 20;
+
+    /**
+     * parses the whole file chunk by chunk
+     * @param filename path to the csv file
+     * @param parser turns the bytes of one chunk into a result
+     * @return one result per chunk, in file order
+     * @throws IOException if the file can't be read
+     */
+    static <T> List<T> parseChunks(String filename, Function<byte[], T> parser) throws IOException {
+        ArrayList<T> out = new ArrayList<>();
+
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long segStart = 0;
+            boolean header = true;
+
+            while (segStart < size) {
+                long segLen = Math.min(MAX_SEGMENT, size - segStart);
+                ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, segStart, segLen);
+
+                // don't split a line between two segments, stop after the last newline
+                int limit = (int) segLen;
+                if (segStart + segLen < size) {
+                    limit = lastLineEnd(buf, limit);
+                    if (limit == 0) {
+                        throw new IOException("line longer than " + MAX_SEGMENT + " bytes in " + filename);
+                    }
+                }
+
+                int start = 0;
+                if (header) {
+                    start = nextLineStart(buf, 0, limit); // Skip header
+                    header = false;
+                }
+
+                out.addAll(parseSegment(buf, start, limit, parser));
+                segStart += limit;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * cuts the segment into chunks at line breaks and parses them in parallel
+     */
+    private static <T> List<T> parseSegment(ByteBuffer buf, int start, int end, Function<byte[], T> parser) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int chunkSize = Math.max(MIN_CHUNK, (end - start) / (cores * 4) + 1);
+
+        ArrayList<Integer> bounds = new ArrayList<>();
+        bounds.add(start);
+        int pos = start;
+        while (pos < end) {
+            pos = nextLineStart(buf, Math.min(end, pos + chunkSize), end);
+            bounds.add(pos);
+        }
+
+        // only absolute gets are used on the buffer so the threads can share it
+        return IntStream.range(0, bounds.size() - 1)
+                .parallel()
+                .mapToObj(i -> {
+                    byte[] data = new byte[bounds.get(i + 1) - bounds.get(i)];
+                    buf.get(bounds.get(i), data);
+                    return parser.apply(data);
+                })
+                .toList();
+    }
+
+    /**
+     * position right after the next newline at or after pos (or end)
+     */
+    private static int nextLineStart(ByteBuffer buf, int pos, int end) {
+        while (pos < end && buf.get(pos) != '\n') pos++;
+        return Math.min(end, pos + 1);
+    }
+
+    /**
+     * position right after the last newline before limit, 0 if there is none
+     */
+    private static int lastLineEnd(ByteBuffer buf, int limit) {
+        for (int i = limit - 1; i >= 0; i--) {
+            if (buf.get(i) == '\n') return i + 1;
+        }
+        return 0;
+    }
+
+    /**
+     * true if every byte in [start, end) is whitespace
+     */
+    static boolean isBlank(byte[] data, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if ((data[i] & 0xFF) > ' ') return false;
+        }
+        return true;
+    }
+}
@@ -1,4 +1,5 @@
 package com.example.datingapp;
+import java.io.IOException;
 import java.util.ArrayList;
 
 /**
@@ -19,17 +20,27 @@ public interface MatchDatabase {
     void loadPeopleFromCSV(String filename);
     void loadRelationships(String filename);
 
+    // Binary snapshot of everything above, much faster to load than the csv files
+    void saveSnapshot(String filename, DatabaseSnapshot.Extras extras) throws IOException;
+    DatabaseSnapshot.Extras loadSnapshot(String filename) throws IOException; // database has to be empty
+
     //Matching features
     People findMatch(String email);
+    MatchPage topMatches(String email, int limit, String cursor); // best mutual candidates, cursor paged
 
 
     //Autocomplete feature
     ArrayList<People> autocompleteByPopularity(String prefix);
+    ArrayList<People> autocompleteByPopularity(String prefix, int limit); // only the top `limit` by popularity
 
     // Search results ranked by MBTI compatibility & popularity
     ArrayList<People> searchByNameRankedByMbti(String nameQuery, String currentUserEmail);
+    ArrayList<People> searchByNameRankedByMbti(String nameQuery, String currentUserEmail, int limit, int offset); // one page of it
 
     // Debugging & visualization
     void printTable();
+    ProbeStats probeStats(); // probe lengths, max chain and load factor of the storage
+    ProbeStats loadStats();  // only size / capacity / deleted / load factor, O(1) for metrics
+    void setMetrics(DatabaseMetrics metrics); // where findMatch, search, rehash and load timings are reported
     void printDetailedRelations();
 }
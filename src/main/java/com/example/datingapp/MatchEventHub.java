@@ -0,0 +1,259 @@
+package com.example.datingapp;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * pushes match, friend match and recommendation events to logged in users over
+ * Server-Sent Events, so the UI only reloads its lists when something changed
+ *
+ * - a subscriber is one open /api/events stream, a user can have a few (tabs)
+ * - the stream is an async servlet response (SseEmitter), an idle subscriber holds no
+ *   thread, just its emitter and a small queue
+ * - publish never blocks the like / match request: it puts the event in every subscriber's
+ *   queue and hands the sending to a virtual thread, at most one per subscriber at a time
+ * - the queues are bounded. when a slow client falls BUFFER events behind, the oldest are
+ *   dropped and it gets a "resync" event instead, telling it to reload /api/lists once
+ * - a comment line goes out every HEARTBEAT_SECONDS so proxies keep the stream open and
+ *   streams of clients that went away fail and get removed
+ * @author Taha
+ */
+public class MatchEventHub {
+
+    /**
+     * the kinds of events a user gets
+     */
+    public enum Kind {
+        MATCH("match"), FRIEND_MATCH("friend_match"), RECOMMENDATION("recommendation");
+
+        final String eventName;
+
+        Kind(String eventName) {
+            this.eventName = eventName;
+        }
+    }
+
+    private static final int BUFFER = 64;
+    private static final int MAX_STREAMS_PER_USER = 8;
+    private static final long HEARTBEAT_SECONDS = 25;
+
+    // lower cased email -> that user's open streams
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger streams = new AtomicInteger();
+    private final AtomicInteger subscriberIds = new AtomicInteger();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "match-events-heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public MatchEventHub() {
+        heartbeat.scheduleAtFixedRate(this::heartbeat, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * opens a stream for a user, it never times out on its own, it ends when the client
+     * goes away or the hub is closed
+     * @param email the user, as stored in the database
+     * @return the emitter to hand back from the controller
+     */
+    public SseEmitter subscribe(String email) {
+        String key = key(email);
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscriber sub = new Subscriber(key, emitter);
+
+        // added inside compute so a remove() emptying the same set can't drop it from the
+        // map between us finding the set and adding to it
+        Set<Subscriber> mine = subscribers.compute(key, (k, set) -> {
+            if (set == null) set = ConcurrentHashMap.newKeySet();
+            set.add(sub);
+            return set;
+        });
+        streams.incrementAndGet();
+        emitter.onCompletion(() -> remove(sub));
+        emitter.onTimeout(() -> remove(sub));
+        emitter.onError(e -> remove(sub));
+
+        // too many tabs, the oldest stream makes room
+        if (mine.size() > MAX_STREAMS_PER_USER) {
+            Subscriber oldest = null;
+            for (Subscriber s : mine) {
+                if (s != sub && (oldest == null || s.id < oldest.id)) oldest = s;
+            }
+            if (oldest != null) {
+                remove(oldest);
+                oldest.emitter.complete();
+            }
+        }
+
+        // first event straight away, so the client knows the stream is live
+        sub.offer(SseEmitter.event().name("ready").data("{}"));
+        return emitter;
+    }
+
+    /**
+     * tells a user about something new, returns right away
+     * @param email who gets it
+     * @param kind what happened
+     * @param other the person it is about
+     */
+    public void publish(String email, Kind kind, People other) {
+        if (email == null || other == null) return;
+        Set<Subscriber> mine = subscribers.get(key(email));
+        if (mine == null || mine.isEmpty()) return;
+
+        String json = "{\"email\":\"" + jsonEscape(other.getEmail()) + "\",\"name\":\""
+                + jsonEscape(other.getName()) + "\",\"mbti\":\"" + jsonEscape(other.getMbtiRaw()) + "\"}";
+        for (Subscriber sub : mine) {
+            sub.offer(SseEmitter.event().name(kind.eventName).data(json));
+        }
+    }
+
+    /**
+     * a mutual match tells both people about each other
+     * @param a one person
+     * @param b the other person
+     * @param kind MATCH or FRIEND_MATCH
+     */
+    public void publishPair(People a, People b, Kind kind) {
+        publish(a.getEmail(), kind, b);
+        publish(b.getEmail(), kind, a);
+    }
+
+    /**
+     * open streams right now, all users together
+     */
+    public int streamCount() {
+        return streams.get();
+    }
+
+    /**
+     * ends every stream and stops the heartbeat
+     */
+    public void close() {
+        heartbeat.shutdownNow();
+        for (Set<Subscriber> mine : subscribers.values()) {
+            for (Subscriber sub : mine) sub.emitter.complete();
+        }
+        senders.shutdown();
+    }
+
+    private void heartbeat() {
+        for (Set<Subscriber> mine : subscribers.values()) {
+            for (Subscriber sub : mine) sub.offer(SseEmitter.event().comment("ping"));
+        }
+    }
+
+    private void remove(Subscriber sub) {
+        boolean[] removed = new boolean[1];
+        // the empty check and the removal happen under the same bin lock as subscribe's add
+        subscribers.computeIfPresent(sub.key, (k, set) -> {
+            removed[0] = set.remove(sub);
+            return set.isEmpty() ? null : set;
+        });
+        if (removed[0]) streams.decrementAndGet();
+    }
+
+    private static String key(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String jsonEscape(String s) {
+        if (s == null) return "";
+        StringBuilder sb = new StringBuilder(s.length() + 8);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * one open stream and the events waiting to go out on it
+     */
+    private final class Subscriber {
+        final int id = subscriberIds.incrementAndGet();
+        final String key;
+        final SseEmitter emitter;
+        // guarded by this. sending is true while a sender drains the queue
+        private final ArrayDeque<SseEmitter.SseEventBuilder> queue = new ArrayDeque<>();
+        private boolean overflowed = false;
+        private boolean sending = false;
+
+        Subscriber(String key, SseEmitter emitter) {
+            this.key = key;
+            this.emitter = emitter;
+        }
+
+        /**
+         * queues an event and starts a sender if none is running, never waits on the client
+         */
+        void offer(SseEmitter.SseEventBuilder event) {
+            synchronized (this) {
+                if (queue.size() >= BUFFER) {
+                    // too far behind, what is queued is stale anyway, one resync replaces it
+                    queue.clear();
+                    overflowed = true;
+                }
+                queue.add(event);
+                if (sending) return;
+                sending = true;
+            }
+            try {
+                senders.execute(this::drain);
+            } catch (RuntimeException e) {
+                // hub closed
+                synchronized (this) {
+                    sending = false;
+                }
+            }
+        }
+
+        /**
+         * sends until the queue is empty, the writes happen outside the lock so publishers
+         * never wait for the network
+         */
+        private void drain() {
+            while (true) {
+                SseEmitter.SseEventBuilder next;
+                synchronized (this) {
+                    if (overflowed) {
+                        overflowed = false;
+                        next = SseEmitter.event().name("resync").data("{}");
+                    } else {
+                        next = queue.poll();
+                        if (next == null) {
+                            sending = false;
+                            return;
+                        }
+                    }
+                }
+                try {
+                    emitter.send(next);
+                } catch (IOException | IllegalStateException e) {
+                    // the client went away, drop the stream
+                    synchronized (this) {
+                        queue.clear();
+                        sending = false;
+                    }
+                    remove(this);
+                    emitter.completeWithError(e);
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.datingapp;
+import java.util.ArrayList;
+import java.util.Comparator;
+
+/**
+ * one page of ranked match suggestions plus the cursor for the next page
+ *
+ * candidates are ranked by the mbti score in both directions added up, then popularity,
+ * then id so the order is total. the cursor is the rank key of the last person on the page
+ * and the next page starts strictly after it, so pages don't repeat or skip people as long
+ * as nobody's popularity changes in between (if it does they can move a little).
+ * @author Taha
+ */
+public class MatchPage {
+
+    public final ArrayList<People> people;
+    public final String nextCursor; // null when there is nothing after this page
+
+    public MatchPage(ArrayList<People> people, String nextCursor) {
+        this.people = people;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * a candidate with the rank key read once, so the heap compares stable numbers
+     */
+    static class Ranked {
+        final People person;
+        final int score;      // both mbti scores added, in eighths (0-16)
+        final int popularity;
+        final int id;
+
+        Ranked(People person, int score, int popularity, int id) {
+            this.person = person;
+            this.score = score;
+            this.popularity = popularity;
+            this.id = id;
+        }
+
+        static final Comparator<Ranked> BEST_FIRST = (a, b) -> {
+            if (a.score != b.score) return Integer.compare(b.score, a.score);
+            if (a.popularity != b.popularity) return Integer.compare(b.popularity, a.popularity);
+            return Integer.compare(a.id, b.id);
+        };
+
+        String cursor() {
+            return score + "." + popularity + "." + id;
+        }
+
+        /**
+         * reads a cursor from a previous page
+         * @param cursor the cursor string or null / "" for the first page
+         * @return the rank key it stands for, or null for the first page
+         * @throws IllegalArgumentException if it isn't a cursor we made
+         */
+        static Ranked parse(String cursor) {
+            if (cursor == null || cursor.isEmpty()) return null;
+            String[] parts = cursor.split("\\.");
+            if (parts.length != 3) throw new IllegalArgumentException("bad cursor: " + cursor);
+            try {
+                return new Ranked(null, Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+                                  Integer.parseInt(parts[2]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("bad cursor: " + cursor);
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.datingapp;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * DatabaseMetrics that records into Micrometer, so the numbers show up at
+ * /actuator/prometheus next to the per endpoint request timings
+ *
+ * - datingapp.findmatch.scanned: candidates checked per findMatch (p50/p99/p999),
+ *   datingapp.findmatch{result=found|none}: calls
+ * - datingapp.autocomplete.hits / datingapp.search.hits: name index hits per call
+ * - datingapp.table.rehash: count and duration of storage rebuilds
+ * - datingapp.table.size / capacity / load.factor / tombstone.ratio: gauges read from
+ *   loadStats() on every scrape
+ * - datingapp.load{source=users|relationships|snapshot}: bulk load durations,
+ *   datingapp.load.rows: rows per load
+ *
+ * meters are created once here, the callbacks only record into them
+ * @author Taha
+ */
+public class MicrometerDatabaseMetrics implements DatabaseMetrics {
+
+    private final MeterRegistry registry;
+    private final DistributionSummary findMatchScanned;
+    private final Counter findMatchFound;
+    private final Counter findMatchNone;
+    private final DistributionSummary autocompleteHits;
+    private final DistributionSummary searchHits;
+    private final Timer rehash;
+
+    /**
+     * @param registry where the meters go
+     * @param database the database the gauges read, a supplier because the web app can
+     *                 replace its database (snapshot fallback)
+     */
+    public MicrometerDatabaseMetrics(MeterRegistry registry, Supplier<MatchDatabase> database) {
+        this.registry = registry;
+        findMatchScanned = DistributionSummary.builder("datingapp.findmatch.scanned")
+                .description("candidates checked per findMatch")
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(registry);
+        findMatchFound = Counter.builder("datingapp.findmatch").tag("result", "found").register(registry);
+        findMatchNone = Counter.builder("datingapp.findmatch").tag("result", "none").register(registry);
+        autocompleteHits = DistributionSummary.builder("datingapp.autocomplete.hits")
+                .description("name index hits per autocomplete")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        searchHits = DistributionSummary.builder("datingapp.search.hits")
+                .description("name index hits per search")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        rehash = Timer.builder("datingapp.table.rehash")
+                .description("storage rebuilds (growing, shrinking or clearing tombstones)")
+                .register(registry);
+
+        Gauge.builder("datingapp.table.size", () -> database.get().loadStats().entries)
+                .description("people stored").register(registry);
+        Gauge.builder("datingapp.table.capacity", () -> database.get().loadStats().capacity)
+                .description("slots in the storage array (0 if it has none)").register(registry);
+        Gauge.builder("datingapp.table.load.factor", () -> database.get().loadStats().loadFactor)
+                .description("(live + deleted) / capacity").register(registry);
+        Gauge.builder("datingapp.table.tombstone.ratio", () -> {
+                    ProbeStats stats = database.get().loadStats();
+                    return stats.capacity == 0 ? 0 : (double) stats.deleted / stats.capacity;
+                })
+                .description("deleted slots / capacity").register(registry);
+    }
+
+    @Override
+    public void findMatch(int scanned, boolean found) {
+        findMatchScanned.record(scanned);
+        (found ? findMatchFound : findMatchNone).increment();
+    }
+
+    @Override
+    public void autocomplete(int hits) {
+        autocompleteHits.record(hits);
+    }
+
+    @Override
+    public void search(int hits) {
+        searchHits.record(hits);
+    }
+
+    @Override
+    public void rehash(int oldCapacity, int newCapacity, long nanos) {
+        rehash.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void load(String source, long rows, long nanos) {
+        // loads are rare, looking the meters up here is fine
+        Timer.builder("datingapp.load").tag("source", source).register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("datingapp.load.rows").tag("source", source).register(registry)
+                .record(rows);
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.datingapp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * sorted token dictionary used by autocomplete so we dont have to scan the whole table
+ * every name is split into normalized tokens (see NameTokens) and each token points to the
+ * people who have it
+ * a prefix query only walks the tokens that start with the prefix
+ * a read/write lock guards the dictionary so many autocomplete calls can run at once
+ * while registrations wait their turn
+ * @author Veronica
+ */
+public class NameIndex {
+
+    // token -> everyone whose name contains that token
+    private final TreeMap<String, ArrayList<People>> postings = new TreeMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * adds every token of this persons name to the index
+     * @param person the person to index
+     */
+    public void add(People person) {
+        lock.writeLock().lock();
+        try {
+            addUnlocked(person);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * indexes a whole batch under one lock, used by bulk loading
+     * @param people the people to index
+     */
+    public void addAll(List<People> people) {
+        lock.writeLock().lock();
+        try {
+            for (People p : people) {
+                addUnlocked(p);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addUnlocked(People person) {
+        // tokens were normalized once when the person was created
+        String[] tokens = person.getNameTokens();
+        for (int i = 0; i < tokens.length; i++) {
+            String token = tokens[i];
+            if (token.isEmpty() || repeatsEarlier(tokens, i)) continue;
+            ArrayList<People> list = postings.get(token);
+            if (list == null) {
+                list = new ArrayList<>();
+                postings.put(token, list);
+            }
+            list.add(person);
+        }
+    }
+
+    /**
+     * takes this person out of every posting list they are in
+     * @param person the person to remove
+     */
+    public void remove(People person) {
+        lock.writeLock().lock();
+        try {
+            for (String token : person.getNameTokens()) {
+                ArrayList<People> list = postings.get(token);
+                if (list == null) continue;
+                list.remove(person);
+                if (list.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * empties the whole index
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * finds everyone with a name token starting with the prefix
+     * only the matching part of the dictionary is visited
+     * @param prefix what the user typed so far
+     * @return the matching people, each person only once
+     */
+    public ArrayList<People> findByPrefix(String prefix) {
+        ArrayList<People> result = new ArrayList<>();
+        if (prefix == null) return result;
+
+        // folded the same way as the names, so "José" and "jose" find each other
+        String normalized = NameTokens.normalize(prefix.trim());
+        if (normalized.isEmpty()) return result;
+
+        // every token >= prefix and < prefix + max char starts with the prefix
+        HashSet<People> seen = new HashSet<>();
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<String, ArrayList<People>> entry :
+                    postings.subMap(normalized, true, normalized + Character.MAX_VALUE, false).entrySet()) {
+                for (People p : entry.getValue()) {
+                    if (seen.add(p)) {
+                        result.add(p);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * true if tokens[i] already showed up earlier in the same name ("Anna Anna"),
+     * names are short so this is cheaper than checking the whole posting list
+     */
+    private static boolean repeatsEarlier(String[] tokens, int i) {
+        for (int j = 0; j < i; j++) {
+            if (tokens[j].equals(tokens[i])) return true;
+        }
+        return false;
+    }
+}
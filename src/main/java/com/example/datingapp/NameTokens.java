@@ -0,0 +1,70 @@
+package com.example.datingapp;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * turns names and search queries into the form the name index compares:
+ * accents stripped ("José" -> "jose"), lower cased the same way in every locale and
+ * split on whitespace
+ *
+ * People do this once for their name when they are created, so autocomplete and search
+ * only compare ready made tokens. the split is a plain loop, no regex
+ * @author Veronica
+ */
+public final class NameTokens {
+
+    private static final String[] NONE = new String[0];
+
+    private NameTokens() {}
+
+    /**
+     * folds one piece of text (a name or a query) without splitting it
+     * @param text the raw text
+     * @return the text without accents, lower case
+     */
+    public static String normalize(String text) {
+        if (!isPlainAscii(text)) {
+            // decompose é into e + a combining accent, then drop the accents
+            String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+            StringBuilder sb = new StringBuilder(decomposed.length());
+            for (int i = 0; i < decomposed.length(); i++) {
+                char c = decomposed.charAt(i);
+                if (Character.getType(c) != Character.NON_SPACING_MARK) sb.append(c);
+            }
+            text = sb.toString();
+        }
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * the normalized whitespace separated tokens of a name, duplicates included
+     * @param name the full name, may be null
+     * @return the non empty tokens (empty array for a null name)
+     */
+    public static String[] tokenize(String name) {
+        if (name == null) return NONE;
+        String folded = normalize(name);
+
+        String[] tokens = new String[4];
+        int count = 0;
+        int i = 0, n = folded.length();
+        while (i < n) {
+            while (i < n && Character.isWhitespace(folded.charAt(i))) i++;
+            int start = i;
+            while (i < n && !Character.isWhitespace(folded.charAt(i))) i++;
+            if (i > start) {
+                if (count == tokens.length) tokens = Arrays.copyOf(tokens, count * 2);
+                tokens[count++] = folded.substring(start, i);
+            }
+        }
+        return count == 0 ? NONE : Arrays.copyOf(tokens, count);
+    }
+
+    private static boolean isPlainAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+}
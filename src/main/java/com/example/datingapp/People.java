@@ -1,5 +1,9 @@
 package com.example.datingapp;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import com.example.datingapp.RelationshipGraph.Relation;
 
 /**
  * simple class to represent a person in our dating app holds their info and mbti stats
@@ -12,34 +16,67 @@ import java.util.ArrayList;
  * 
  * @author Veronica
  */
+
+/**
+ * MBTI data is packed: the self type is a 4 bit mask, the preference counters are a plain
+ * int array and the strong preference mask + polarity are cached after every update,
+ * along with the verdict and score against each of the 17 possible types.
+ */
 public class People {
     private String name;
+    private final String[] nameTokens; // normalized once for the name index, see NameTokens
     private String email;
     private String mbtiRaw; // Stores "ENFP", "ISTJ", etc. needed for reference
     private int validLikes = 0;
     private String gender; // e.g. "men", "women", "non-binary"
     private ArrayList<String> genderPreferences; // romantic preferences
+    // the same two as GenderDictionary ids, so the compatibility check is a bit test:
+    // bit g of preferredGenders is set when gender id g is wanted, empty = no restriction
+    private int genderId;
+    private long[] preferredGenders = ANY_GENDER;
+    private static final long[] ANY_GENDER = new long[0];
     
 
+    // compiled once, String.split would compile the regex for every call
+    private static final Pattern PREFERENCE_SEPARATOR = Pattern.compile("\\s*,\\s*");
+
     // NEW: how many people like this person
-    private int likedByCount = 0;
+    // volatile so request threads reading it for ranking see the latest count
+    private volatile int likedByCount = 0;
 
     // Tracks compatibility: What this person *likes* in others
-    // E(-1)/I(+1), N(-1)/S(+1), T(-1)/F(+1), P(-1)/J(+1)
-    private ArrayList<Integer> mbtiStats; 
-    
-    // Tracks identity: What this person *is*
-    // Logic: E(+1)/I(-1), S(+1)/N(-1), F(+1)/T(-1), J(+1)/P(-1)
-    private ArrayList<Integer> mbtiSelfType; 
+    // E(+1)/I(-1), S(+1)/N(-1), F(+1)/T(-1), J(+1)/P(-1)
+    private final int[] mbtiStats = new int[4];
+
+    // Tracks identity: What this person *is*, packed into 4 bits
+    // bit k is set when axis k is the +1 letter (bit 0 E, bit 1 S, bit 2 F, bit 3 J)
+    private int mbtiSelfMask = 0;
+    private boolean hasMbtiType = false; // false while mbti is "NA"
+
+    // Cached from mbtiStats every time they change so matching is just bit math:
+    // low 4 bits  = axes where this person has a strong (> 33%) preference
+    // next 4 bits = which letter they prefer on those axes (set = the +1 letter)
+    // one volatile int so readers on other threads always see a matching pair
+    private volatile int prefMasks = 0;
+    private static final double STRONG_PREFERENCE = 0.33;
 
+    // There are only 16 types plus "NA", so the verdict and score against each one are
+    // cached here and rebuilt only when updateMbtiStats changes the stats.
+    // index = subject's mbtiTypeIndex(), value = score in eighths (0-8) | COMPATIBLE_BIT
+    public static final int MBTI_TYPE_COUNT = 17;
+    public static final int NA_TYPE_INDEX = 16;
+    private static final int COMPATIBLE_BIT = 0x10;
+    private static final byte[] NO_PREFERENCE_ROW = buildMbtiRow(0);
+    private volatile byte[] mbtiRow = NO_PREFERENCE_ROW;
 
-    //tracks the people the person has liked/friended
-    private ArrayList<String> likedEmails;
-    private ArrayList<String> friendEmails;
 
-    //tracks the matches made by mutual likes
-    private ArrayList<String> likeMatches;
-    private ArrayList<String> friendMatches;
+    //likes, friend likes and matches live in the database's RelationshipGraph,
+    //keyed by this dense id instead of by email. attach sets both when a database inserts us
+    //and unregister clears them with (null, -1) when we are removed. until then relations()
+    //falls back to the empty RelationshipGraph.none(), so we see no relations and likes
+    //involving us aren't recorded
+    private RelationshipGraph graph;
+    private int id = -1;
 
 
     /**
@@ -49,45 +86,40 @@ public class People {
      */
     public People(String name, String email) {
         this.name = name;
+        this.nameTokens = NameTokens.tokenize(name);
         this.email = email;
         this.mbtiRaw = "NA";
-        
-        // Initialize compatibility stats with [0, 0, 0, 0]
-        this.mbtiStats = new ArrayList<>();
-        this.mbtiSelfType = new ArrayList<>();
-        for (int i = 0; i < 4; i++) {
-            this.mbtiStats.add(0);
-            this.mbtiSelfType.add(0);
-        }
-        
-        this.likedEmails = new ArrayList<>();
-        this.friendEmails = new ArrayList<>();
-
-        this.likeMatches = new ArrayList<>();
-        this.friendMatches = new ArrayList<>();
 
         this.gender = "unspecified";
+        this.genderId = GenderDictionary.idOf(gender);
         this.genderPreferences = new ArrayList<>();
     }
 
     /**
-     * takes the string like ENTJ and turns it into numbers so we can do math on it
-     * logic for self E S F J is +1 and I N T P is -1
+     * takes the string like ENTJ and turns it into a 4 bit mask so we can do math on it
+     * logic for self E S F J is a set bit and I N T P is a clear bit
      * @param mbtiType the 4 letter string
      */
     public void setMbtiSelfType(String mbtiType) {
         if (mbtiType == null || mbtiType.length() < 4) return;
         
         this.mbtiRaw = mbtiType.toUpperCase();
-        
-        // Index 0: E vs I
-        mbtiSelfType.set(0, (mbtiRaw.charAt(0) == 'E') ? 1 : -1);
-        // Index 1: S vs N
-        mbtiSelfType.set(1, (mbtiRaw.charAt(1) == 'S') ? 1 : -1);
-        // Index 2: F vs T
-        mbtiSelfType.set(2, (mbtiRaw.charAt(2) == 'F') ? 1 : -1);
-        // Index 3: J vs P
-        mbtiSelfType.set(3, (mbtiRaw.charAt(3) == 'J') ? 1 : -1);
+        this.mbtiSelfMask = mbtiMask(mbtiRaw);
+        this.hasMbtiType = true;
+    }
+
+    /**
+     * packs a 4 letter type into bits, bit 0 E, bit 1 S, bit 2 F, bit 3 J
+     * @param mbti the upper case 4 letter string
+     * @return the mask
+     */
+    private static int mbtiMask(String mbti) {
+        int mask = 0;
+        if (mbti.charAt(0) == 'E') mask |= 1;
+        if (mbti.charAt(1) == 'S') mask |= 2;
+        if (mbti.charAt(2) == 'F') mask |= 4;
+        if (mbti.charAt(3) == 'J') mask |= 8;
+        return mask;
     }
 
     /**
@@ -98,94 +130,294 @@ public class People {
     public void updateMbtiStats(String targetMbti) {
         if (targetMbti == null || targetMbti.equals("NA") || targetMbti.length() < 4) return;
 
-        targetMbti = targetMbti.toUpperCase();
+        int target = mbtiMask(targetMbti.toUpperCase());
         this.validLikes++;
 
-        // 1. E vs I
-        int currentE = mbtiStats.get(0);
-        mbtiStats.set(0, (targetMbti.charAt(0) == 'E') ? currentE + 1 : currentE - 1);
+        // each axis goes +1 if they had the E/S/F/J letter, -1 otherwise
+        for (int k = 0; k < 4; k++) {
+            mbtiStats[k] += ((target >> k) & 1) == 1 ? 1 : -1;
+        }
+
+        refreshPreferenceMasks();
+    }
+
+    /**
+     * bulk version of updateMbtiStats for the relationship loader, the masks and the
+     * cached row are rebuilt once for the whole batch instead of once per like
+     * @param likes how many people with a known type were liked
+     * @param axisVotes per axis sum of the +1 / -1 votes from those people
+     */
+    void addMbtiLikes(int likes, int[] axisVotes) {
+        if (likes == 0) return;
+        this.validLikes += likes;
+        for (int k = 0; k < 4; k++) {
+            mbtiStats[k] += axisVotes[k];
+        }
+        refreshPreferenceMasks();
+    }
+
+    /**
+     * recomputes the strong preference mask and polarity from the stats
+     * an axis is strong when more than 33% of the valid likes lean one way
+     */
+    private void refreshPreferenceMasks() {
+        int strong = 0;
+        int polarity = 0;
+        if (validLikes > 0) {
+            for (int k = 0; k < 4; k++) {
+                double ratio = (double) mbtiStats[k] / validLikes;
+                if (ratio > STRONG_PREFERENCE) {
+                    strong |= 1 << k;
+                    polarity |= 1 << k;
+                } else if (ratio < -STRONG_PREFERENCE) {
+                    strong |= 1 << k;
+                }
+            }
+        }
+        int masks = strong | (polarity << 4);
+        prefMasks = masks;
+        mbtiRow = (strong == 0) ? NO_PREFERENCE_ROW : buildMbtiRow(masks);
+    }
+
+    /**
+     * works out the verdict and score against all 17 subject types for one set of preferences
+     * @param masks strong mask in bits 0-3, polarity in bits 4-7
+     * @return the row, see mbtiRow
+     */
+    private static byte[] buildMbtiRow(int masks) {
+        int strong = strongMask(masks);
+        int polarity = polarityMask(masks);
+        int neutral = 4 - Integer.bitCount(strong);
+        byte[] row = new byte[MBTI_TYPE_COUNT];
+
+        for (int type = 0; type < 16; type++) {
+            // axes where this type has the letter we strongly prefer
+            int matched = Integer.bitCount(~(type ^ polarity) & strong);
+            // matched strong axis = 1, mismatch = 0, neutral = 0.5 -> in eighths: 2, 0, 1
+            int eighths = 2 * matched + neutral;
+            boolean ok = (matched == Integer.bitCount(strong));
+            row[type] = (byte) (eighths | (ok ? COMPATIBLE_BIT : 0));
+        }
+
+        // 'NA' has no letters, it only passes if there is nothing strong to match
+        row[NA_TYPE_INDEX] = (byte) (neutral | (strong == 0 ? COMPATIBLE_BIT : 0));
+        return row;
+    }
+
+    /**
+     * which of the 17 cached columns this person falls in
+     * @return the 4 bit self mask, or NA_TYPE_INDEX if their type is NA
+     */
+    public int mbtiTypeIndex() {
+        return hasMbtiType ? mbtiSelfMask : NA_TYPE_INDEX;
+    }
+
+    /**
+     * the 33% rule from this persons point of view, one array lookup
+     * @param subject the person being checked against this persons preferences
+     * @return true if subject fits every strong preference
+     */
+    public boolean acceptsMbtiOf(People subject) {
+        return (mbtiRow[subject.mbtiTypeIndex()] & COMPATIBLE_BIT) != 0;
+    }
+
+    /**
+     * same as acceptsMbtiOf but for a type index, lets the candidate pool skip whole types
+     * @param typeIndex 0-15 for the 16 types, NA_TYPE_INDEX for NA
+     */
+    public boolean acceptsMbtiType(int typeIndex) {
+        return (mbtiRow[typeIndex] & COMPATIBLE_BIT) != 0;
+    }
+
+    /**
+     * how well subject fits this persons preferences, one array lookup
+     * @param subject the person being scored
+     * @return score in [0,1], 0.5 when there are no strong preferences
+     */
+    public double mbtiScoreFor(People subject) {
+        return mbtiEighthsFor(subject) / 8.0;
+    }
+
+    /**
+     * mbtiScoreFor as a whole number of eighths (0-8), exact so it can go in a rank key
+     */
+    public int mbtiEighthsFor(People subject) {
+        return mbtiRow[subject.mbtiTypeIndex()] & 0xF;
+    }
+
+    /**
+     * called by RelationshipGraph.register when a database takes this person in, and with
+     * (null, -1) when they are removed again
+     * @param graph the graph of that database
+     * @param id the dense id they got
+     */
+    void attach(RelationshipGraph graph, int id) {
+        this.graph = graph;
+        this.id = id;
+    }
 
-        // 2. S vs N
-        int currentS = mbtiStats.get(1);
-        mbtiStats.set(1, (targetMbti.charAt(1) == 'S') ? currentS + 1 : currentS - 1);
+    /**
+     * the dense id in the current database, -1 if they aren't in one
+     */
+    public int getId() { return id; }
 
-        // 3. F vs T
-        int currentF = mbtiStats.get(2);
-        mbtiStats.set(2, (targetMbti.charAt(2) == 'F') ? currentF + 1 : currentF - 1);
+    RelationshipGraph getGraph() { return graph; }
 
-        // 4. J vs P
-        int currentJ = mbtiStats.get(3);
-        mbtiStats.set(3, (targetMbti.charAt(3) == 'J') ? currentJ + 1 : currentJ - 1);
+    private RelationshipGraph relations() {
+        return graph != null ? graph : RelationshipGraph.none();
     }
 
     /**
-     * adds an email to the list of people you like
-     * @param email the email to add
+     * adds someone to the people you like
+     * @param other the person you liked
+     * @return true if they weren't there already
      */
-    public void addLikedEmail(String email) { this.likedEmails.add(email); }
+    public boolean addLike(People other) { return relations().add(Relation.LIKE, this, other); }
     /**
-     * adds an email to the friend crush list
-     * @param email the email to add
+     * adds someone to the friend crush list
+     * @param other the person you friend liked
+     * @return true if they weren't there already
      */
-    public void addFriendEmail(String email) { this.friendEmails.add(email); }
+    public boolean addFriendLike(People other) { return relations().add(Relation.FRIEND, this, other); }
 
      /**
-     * adds an email to the list of people you matched via liking
-     * @param email the email to add
+     * adds someone to the people you matched via liking
+     * @param other the person you matched
+     * @return true if they weren't there already
      */
-     public void addLikedEmailMatch(String email) { this.likeMatches.add(email); }
+     public boolean addLikeMatch(People other) { return relations().add(Relation.LIKE_MATCH, this, other); }
      /**
-      * adds an email to the list of people you matched as friends
-      * @param email the email to add
+      * adds someone to the people you matched as friends
+      * @param other the person you matched
+      * @return true if they weren't there already
       */
-     public void addFriendEmailMatch(String email) { this.friendMatches.add(email); }
+     public boolean addFriendMatch(People other) { return relations().add(Relation.FRIEND_MATCH, this, other); }
+
+    /**
+     * takes someone off the liked list, used once the like turns into a match
+     * @param other the person to remove
+     * @return true if they were there
+     */
+    public boolean removeLike(People other) { return relations().remove(Relation.LIKE, this, other); }
+    /**
+     * takes someone off the friend crush list, used once it turns into a friend match
+     * @param other the person to remove
+     * @return true if they were there
+     */
+    public boolean removeFriendLike(People other) { return relations().remove(Relation.FRIEND, this, other); }
+
+    // membership checks, a binary search in our row of the graph
+    public boolean hasLiked(People other) { return relations().contains(Relation.LIKE, this, other); }
+    public boolean hasFriendLiked(People other) { return relations().contains(Relation.FRIEND, this, other); }
+    public boolean isLikeMatchedWith(People other) { return relations().contains(Relation.LIKE_MATCH, this, other); }
+    public boolean isFriendMatchedWith(People other) { return relations().contains(Relation.FRIEND_MATCH, this, other); }
 
     public String getEmail() { return email; }
     public String getName() { return name; }
+
+    /**
+     * the name split into lower case tokens without accents, shared so don't modify it
+     * @return the tokens in name order (empty if there is no name)
+     */
+    public String[] getNameTokens() { return nameTokens; }
     public String getMbtiRaw() { return mbtiRaw; } // Necessary for relationship processing
-    public ArrayList<Integer> getMbtiStats() { return mbtiStats; }
-    public ArrayList<Integer> getMbtiSelfType() { return mbtiSelfType; }
     public int getValidLikes() {return validLikes;}
+    public int getMbtiSelfMask() { return mbtiSelfMask; }
+    public boolean hasMbtiType() { return hasMbtiType; }
+
+    /**
+     * both cached preference masks in one int, read it once and decode with
+     * strongMask / polarityMask so the pair can't come from two different updates
+     * @return strong mask in bits 0-3, polarity in bits 4-7
+     */
+    public int getPreferenceMasks() { return prefMasks; }
+    public static int strongMask(int prefMasks) { return prefMasks & 0xF; }
+    public static int polarityMask(int prefMasks) { return (prefMasks >>> 4) & 0xF; }
+
+    /**
+     * preference stats as a list for display, [E/I, S/N, F/T, J/P]
+     * @return a new list built from the counters
+     */
+    public ArrayList<Integer> getMbtiStats() {
+        ArrayList<Integer> out = new ArrayList<>(4);
+        for (int k = 0; k < 4; k++) out.add(mbtiStats[k]);
+        return out;
+    }
+
+    /**
+     * self type as a list for display, +1 / -1 per axis or all 0 when the type is NA
+     * @return a new list built from the mask
+     */
+    public ArrayList<Integer> getMbtiSelfType() {
+        ArrayList<Integer> out = new ArrayList<>(4);
+        for (int k = 0; k < 4; k++) {
+            if (!hasMbtiType) out.add(0);
+            else out.add(((mbtiSelfMask >> k) & 1) == 1 ? 1 : -1);
+        }
+        return out;
+    }
 
     // NEW METHODS:
-    public void incrementLikedByCount() {
+    public synchronized void incrementLikedByCount() {
         likedByCount++;
     }
 
+    /**
+     * adds a batch of new likes at once (bulk loading)
+     */
+    public synchronized void addLikedByCount(int likes) {
+        likedByCount += likes;
+    }
+
     public int getLikedByCount() {
         return likedByCount;
     }
     
     /**
-     * accessor for the list of people this person likes
-     * @return the arraylist of emails
+     * accessor for the people this person likes, resolved straight from the graph by id
+     * @return a new list of people
+     */
+    public ArrayList<People> getLikedPeople() { return relations().neighbours(Relation.LIKE, this); }
+    public ArrayList<People> getFriendLikedPeople() { return relations().neighbours(Relation.FRIEND, this); }
+    public ArrayList<People> getLikeMatchPeople() { return relations().neighbours(Relation.LIKE_MATCH, this); }
+    public ArrayList<People> getFriendMatchPeople() { return relations().neighbours(Relation.FRIEND_MATCH, this); }
+
+    /**
+     * accessor for the emails of people this person likes
+     * @return a new list of emails
      */
-     public ArrayList<String> getLikedEmails() {
-        return likedEmails;
+     public List<String> getLikedEmails() {
+        return emailsOf(getLikedPeople());
     }
     
     /**
-     * accessor for the list of friends this person has
-     * @return the arraylist of friend emails
+     * accessor for the emails of this persons friend matches
+     * @return a new list of friend emails
      */
-    public ArrayList<String> getFriendEmailsMatch() {
-        return friendMatches;
+    public List<String> getFriendEmailsMatch() {
+        return emailsOf(getFriendMatchPeople());
     }
 
      /**
-     * accessor for the list of people this person likes
-     * @return the arraylist of emails
+     * accessor for the emails of this persons romantic matches
+     * @return a new list of emails
      */
-     public ArrayList<String> getLikedEmailsMatch() {
-        return likeMatches;
+     public List<String> getLikedEmailsMatch() {
+        return emailsOf(getLikeMatchPeople());
     }
     
     /**
-     * accessor for the list of friends this person has
-     * @return the arraylist of friend emails
+     * accessor for the emails of people this person friend liked
+     * @return a new list of friend emails
      */
-    public ArrayList<String> getFriendEmails() {
-        return friendEmails;
+    public List<String> getFriendEmails() {
+        return emailsOf(getFriendLikedPeople());
+    }
+
+    private static List<String> emailsOf(List<People> people) {
+        ArrayList<String> out = new ArrayList<>(people.size());
+        for (People p : people) out.add(p.getEmail());
+        return out;
     }
 
     /**
@@ -198,6 +430,7 @@ public class People {
         } else {
             this.gender = gender.toLowerCase();
         }
+        this.genderId = GenderDictionary.idOf(this.gender);
     }
     
     /**
@@ -206,17 +439,43 @@ public class People {
      */
     public void setGenderPreferencesFromString(String raw) {
         genderPreferences.clear();
+        preferredGenders = ANY_GENDER;
         if (raw == null) return;
     
         // split on commas and trim
-        String[] parts = raw.replace("\"", "").toLowerCase().split("\\s*,\\s*");
+        String[] parts = PREFERENCE_SEPARATOR.split(raw.replace("\"", "").toLowerCase());
         for (String p : parts) {
             if (!p.isEmpty()) {
                 genderPreferences.add(p);
             }
         }
+        preferredGenders = genderMask(genderPreferences);
     }
     
+    /**
+     * puts back preferences that were already split and lower cased (snapshot loading)
+     * @param prefs the prefered genders
+     */
+    void setGenderPreferences(List<String> prefs) {
+        genderPreferences.clear();
+        genderPreferences.addAll(prefs);
+        preferredGenders = genderMask(genderPreferences);
+    }
+
+    /**
+     * turns the prefered gender labels into a bitmask of their dictionary ids
+     */
+    private static long[] genderMask(List<String> prefs) {
+        if (prefs.isEmpty()) return ANY_GENDER;
+        long[] mask = new long[1];
+        for (String pref : prefs) {
+            int id = GenderDictionary.idOf(pref);
+            if ((id >>> 6) >= mask.length) mask = Arrays.copyOf(mask, (id >>> 6) + 1);
+            mask[id >>> 6] |= 1L << id;
+        }
+        return mask;
+    }
+
     /**
      * accessor for gender
      * @return the gender
@@ -225,6 +484,23 @@ public class People {
         return gender;
     }
     
+    /**
+     * accessor for the gender as a GenderDictionary id
+     * @return the gender id
+     */
+    public int getGenderId() {
+        return genderId;
+    }
+
+    /**
+     * the prefered genders as a bitmask of GenderDictionary ids (bit g of word g / 64),
+     * empty if there is no restriction. shared, don't modify it
+     * @return the mask words
+     */
+    long[] getGenderPreferenceMask() {
+        return preferredGenders;
+    }
+
     /**
      * accessor for the list of gender preferences
      * @return the arraylist of prefered genders
@@ -239,13 +515,11 @@ public class People {
      */
     public boolean isGenderCompatibleWith(People other) {
         if (other == null) return false;
-        if (genderPreferences == null || genderPreferences.isEmpty()) {
-            // if nothing stored, treat as "no restriction"
-            return true;
-        }
-        String otherGender = other.getGender();
-        if (otherGender == null) return false;
-        return genderPreferences.contains(otherGender.toLowerCase());
+        long[] wanted = preferredGenders;
+        // if nothing stored, treat as "no restriction"
+        if (wanted.length == 0) return true;
+        int g = other.genderId;
+        return (g >>> 6) < wanted.length && (wanted[g >>> 6] & (1L << g)) != 0;
     }
 
     /**
@@ -259,6 +533,6 @@ public class People {
 
     @Override
     public String toString() {
-        return name + " (" + mbtiRaw + ") | SelfScore: " + mbtiSelfType + " | PrefScore: " + mbtiStats;
+        return name + " (" + mbtiRaw + ") | SelfScore: " + getMbtiSelfType() + " | PrefScore: " + getMbtiStats();
     }
 }
\ No newline at end of file
@@ -0,0 +1,149 @@
+package com.example.datingapp;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * fast reader for users.csv style files
+ *
+ * the file is memory mapped instead of read line by line and the chunks are parsed on all
+ * cores at once (see MappedCsvReader). the tokenizer walks the raw bytes and only remembers
+ * where each field starts and ends, so there is no ArrayList / StringBuilder per row, a
+ * String is decoded straight from the bytes for the fields we keep.
+ * the rows come back in file order so the database can presize and insert them in one go.
+ *
+ * columns: id, first_name, last_name, email, mbti, gender, gender preferences
+ * quoted fields can contain commas (ex: "Woman, Man")
+ * @author Taha
+ */
+public class PeopleCsvLoader {
+
+    private static final int FIELDS = 7;
+
+    /**
+     * reads and parses every user in the file
+     * @param filename path to the csv file
+     * @return the parsed people in file order
+     * @throws IOException if the file can't be read
+     */
+    public static ArrayList<People> load(String filename) throws IOException {
+        List<ArrayList<People>> parts = MappedCsvReader.parseChunks(filename, PeopleCsvLoader::parseChunk);
+
+        int total = 0;
+        for (ArrayList<People> part : parts) total += part.size();
+        ArrayList<People> out = new ArrayList<>(total);
+        for (ArrayList<People> part : parts) out.addAll(part);
+        return out;
+    }
+
+    /**
+     * parses one chunk of whole lines, tokenized in place
+     */
+    private static ArrayList<People> parseChunk(byte[] data) {
+        ArrayList<People> out = new ArrayList<>(data.length / 80 + 1);
+        int[] fieldStart = new int[FIELDS];
+        int[] fieldEnd = new int[FIELDS];
+
+        int pos = 0;
+        while (pos < data.length) {
+            int lineStart = pos;
+            int fields = 0;
+            int fs = pos;
+            boolean inQuotes = false;
+
+            // remember where every field starts/ends, commas inside quotes don't count
+            while (pos < data.length) {
+                byte b = data[pos];
+                if (b == '\n') break;
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == ',' && !inQuotes) {
+                    if (fields < FIELDS) {
+                        fieldStart[fields] = fs;
+                        fieldEnd[fields] = pos;
+                    }
+                    fields++;
+                    fs = pos + 1;
+                }
+                pos++;
+            }
+            if (fields < FIELDS) {
+                fieldStart[fields] = fs;
+                fieldEnd[fields] = pos;
+            }
+            fields++;
+            int lineEnd = pos;
+            pos++; // skip the newline
+
+            // empty lines (like a trailing one at the end of the file) are skipped
+            if (fields == 1 && MappedCsvReader.isBlank(data, lineStart, lineEnd)) {
+                continue;
+            }
+
+            // missing columns read as ""
+            for (int f = fields; f < FIELDS; f++) {
+                fieldStart[f] = 0;
+                fieldEnd[f] = 0;
+            }
+
+            out.add(toPerson(data, fieldStart, fieldEnd));
+        }
+        return out;
+    }
+
+    /**
+     * builds the person from the field positions the same way loadPeopleFromCSV always did
+     */
+    private static People toPerson(byte[] data, int[] fs, int[] fe) {
+        // combine first and last names
+        String fullName = (field(data, fs[1], fe[1]) + " " + field(data, fs[2], fe[2])).trim();
+        String email = field(data, fs[3], fe[3]);
+        String mbti = field(data, fs[4], fe[4]);
+        String gender = field(data, fs[5], fe[5]);
+        String prefsRaw = field(data, fs[6], fe[6]);
+
+        People p = new People(fullName, email);
+
+        //set mbti if it's non-empty
+        if (!mbti.isEmpty()) {
+            p.setMbtiSelfType(mbti);
+        }
+        if (!gender.isEmpty()) {
+            p.setGender(gender);
+        }
+        if (!prefsRaw.isEmpty()) {
+            p.setGenderPreferencesFromString(prefsRaw);
+        }
+        return p;
+    }
+
+    /**
+     * decodes one field straight out of the chunk: quotes dropped, surrounding whitespace trimmed
+     * only fields that still have quotes inside them need an extra copy
+     */
+    private static String field(byte[] data, int start, int end) {
+        while (start < end && isTrimmable(data[start])) start++;
+        while (end > start && isTrimmable(data[end - 1])) end--;
+        if (start == end) return "";
+
+        boolean quoted = false;
+        for (int i = start; i < end && !quoted; i++) {
+            quoted = data[i] == '"';
+        }
+        if (!quoted) {
+            return new String(data, start, end - start, StandardCharsets.UTF_8);
+        }
+
+        byte[] bytes = new byte[end - start];
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            if (data[i] != '"') bytes[n++] = data[i];
+        }
+        return new String(bytes, 0, n, StandardCharsets.UTF_8).trim();
+    }
+
+    private static boolean isTrimmable(byte b) {
+        return (b & 0xFF) <= ' ' || b == '"';
+    }
+}
@@ -1,7 +1,4 @@
 package com.example.datingapp;
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.IOException;
 import java.util.ArrayList;
 
 /**
@@ -15,11 +12,23 @@ import java.util.ArrayList;
  * - Autocomplete suggestions ranked by popularity
  * - Helper Method for calculating MBTI matching score
  * - Final search results ranked by MBTI compatibility
+ * - Token prefix index so autocomplete only visits matching users
+ * - Bounded top-K autocomplete using a small min-heap
  * 
  * This class now handles both autocomplete and search as well.
  * @author Veronica
  */
-public class PeopleHashTable implements MatchDatabase {
+
+/**
+ * The loading, matching, autocomplete and search logic now lives in AbstractMatchDatabase,
+ * this class is just the quadratic probing storage. It is not thread safe, the web server
+ * uses ConcurrentPeopleTable instead.
+ *
+ * Deleted slots count toward the load factor (probes walk over them), inserts reuse the
+ * first deleted slot they pass, a table that is mostly deleted slots gets rehashed at the
+ * same size and one that is mostly empty after removals shrinks.
+ */
+public class PeopleHashTable extends AbstractMatchDatabase {
 
     // Internal class to handle Lazy Deletion
     private static class HashEntry {
@@ -38,13 +47,24 @@ public class PeopleHashTable implements MatchDatabase {
 
     private HashEntry[] array; // The storage array
     private int currentSize;   // Number of active elements
+    private int occupied;      // Active elements + lazy deleted ones, probing walks over both
     private static final int DEFAULT_TABLE_SIZE = 11; // Small prime to start as our %m
+    private final EmailHashStrategy hashStrategy; // email -> int, reduced mod the table size
 
     public PeopleHashTable() {
         this(DEFAULT_TABLE_SIZE);
     }
 
     public PeopleHashTable(int size) {
+        this(size, EmailHashStrategy.POLYNOMIAL_27);
+    }
+
+    /**
+     * @param size starting array length, should be prime
+     * @param hashStrategy how emails are hashed (the 27 polynomial by default)
+     */
+    public PeopleHashTable(int size, EmailHashStrategy hashStrategy) {
+        this.hashStrategy = hashStrategy;
         allocateArray(size);
         makeEmpty();
     }
@@ -54,6 +74,10 @@ public class PeopleHashTable implements MatchDatabase {
      */
     public void makeEmpty() {
         currentSize = 0;
+        occupied = 0;
+        nameIndex.clear();
+        candidatePool.clear();
+        graph.clear();
         for (int i = 0; i < array.length; i++) {
             array[i] = null;
         }
@@ -84,52 +108,89 @@ public class PeopleHashTable implements MatchDatabase {
 
     /**
      * adds a new person to the hash table handling collisions
+     * rehash uses this directly so the name index isn't rebuilt
      * @param person the person object to add
+     * @return true if they were added, false if the email was already there
      */
-    public void insert(People person) {
+    protected boolean insertEntry(People person) {
         String emailKey = person.getEmail();
-        int currentPos = findPos(emailKey);
-
-        // If the slot is already active with the same email, it's a duplicate.
-        // We do not override it as the original user is probably the real one
-        if (isActive(currentPos)) {
-            return; 
+        int offset = 1;
+        int currentPos = myHash(emailKey);
+        int firstDeleted = -1;
+
+        // Same probe as findPos, but remember the first lazy-deleted slot on the way
+        while (array[currentPos] != null) {
+            if (array[currentPos].isActive) {
+                // If the slot is already active with the same email, it's a duplicate.
+                // We do not override it as the original user is probably the real one
+                if (array[currentPos].element.getEmail().equals(emailKey)) {
+                    return false;
+                }
+            } else if (firstDeleted < 0) {
+                firstDeleted = currentPos;
+            }
+            currentPos += offset;
+            offset += 2;
+            if (currentPos >= array.length) {
+                currentPos -= array.length;
+            }
         }
 
-        // Insert new entry (or overwrite a lazy-deleted one)
-        array[currentPos] = new HashEntry(person, true);
+        // Reuse a deleted slot if we passed one, the chain doesn't get any longer then
+        if (firstDeleted >= 0) {
+            array[firstDeleted] = new HashEntry(person, true);
+        } else {
+            array[currentPos] = new HashEntry(person, true);
+            occupied++;
+        }
         currentSize++;
 
-        // Check Load Factor > 0.5
-        if (currentSize > array.length / 2) {
-            rehash();
+        // Check Load Factor > 0.5, counting deleted slots since probing has to walk them too
+        if (occupied > array.length / 2) {
+            if (currentSize > array.length / 4) {
+                rehash();
+            } else {
+                // mostly deleted slots, same size is enough to clean them out
+                rehash(array.length);
+            }
         }
+        return true;
     }
 
     /**
      * removes a person but just marks them as inactive instead of deleting
      * @param email email of the person to remove
+     * @return the person that was removed or null if they weren't there
      */
-    public void remove(String email) {
+    protected People removeEntry(String email) {
         int currentPos = findPos(email);
         if (isActive(currentPos)) {
+            People removed = array[currentPos].element;
             array[currentPos].isActive = false;
-            currentSize--; // Reduce count of active items
+            currentSize--; // Reduce count of active items (the slot stays occupied)
+
+            // after a lot of deletions shrink back so the array isn't mostly empty
+            if (currentSize < array.length / 8 && array.length > DEFAULT_TABLE_SIZE) {
+                rehash(nextPrime(Math.max(DEFAULT_TABLE_SIZE, 4 * currentSize)));
+            }
+            return removed;
         }
+        return null;
     }
 
     /**
      * finds the position for a key using quadratic probing
      * @param key the email key
-     * @return the index where the key is or should be
+     * @return the index where the key is active, or the empty slot that ends its chain
      */
     private int findPos(String key) {
         int offset = 1;
         int currentPos = myHash(key);
 
-        // Loop while slot is not null AND the key doesn't match
+        // Loop while slot is not null AND it isn't the key (deleted slots never match,
+        // an old deleted copy of the key can sit in front of the live one)
         while (array[currentPos] != null && 
-               !array[currentPos].element.getEmail().equals(key)) {
+               !(array[currentPos].isActive && array[currentPos].element.getEmail().equals(key))) {
             
             // Quadratic probing formula implementation:
             // More compute efficent than multiplication we learned in class still works
@@ -149,29 +210,52 @@ public class PeopleHashTable implements MatchDatabase {
      * resizes the table when it gets too full
      */
     private void rehash() {
+        // Create new array of double size (next prime)
+        rehash(nextPrime(2 * array.length));
+    }
+
+    /**
+     * moves everything into a new array of the given size
+     * @param newSize the new array length, should be prime
+     */
+    private void rehash(int newSize) {
+        long start = System.nanoTime();
         HashEntry[] oldArray = array;
 
-        // Create new array of double size (next prime)
-        allocateArray(nextPrime(2 * oldArray.length));
+        allocateArray(newSize);
         currentSize = 0;
+        occupied = 0;
 
         // Copy active elements (Lazy deleted items are discarded)
         for (HashEntry entry : oldArray) {
             if (entry != null && entry.isActive) {
-                insert(entry.element);
+                insertEntry(entry.element);
             }
         }
+        metrics.rehash(oldArray.length, newSize, System.nanoTime() - start);
+    }
+
+    /**
+     * grows the table once so expectedSize people fit under the 0.5 load factor,
+     * bulk loading calls this so it doesn't rehash over and over while inserting
+     * @param expectedSize how many people we are about to have
+     */
+    protected void ensureCapacity(int expectedSize) {
+        if (expectedSize > array.length / 2) {
+            rehash(nextPrime(2 * expectedSize + 1));
+        }
+    }
+
+    protected int size() {
+        return currentSize;
     }
 
     /**
      * Hashing function for Strings.
+     * The strategy does the hashing (27 method as we learned in class unless another one is picked)
      */
     private int myHash(String key) {
-        int hashVal = 0;
-
-        for (int i = 0; i < key.length(); i++) {
-            hashVal = 27 * hashVal + key.charAt(i); // 27 method as we learned in class
-        }
+        int hashVal = hashStrategy.hash(key);
 
         hashVal %= array.length;
         if (hashVal < 0) {
@@ -234,142 +318,6 @@ public class PeopleHashTable implements MatchDatabase {
     }
 
     
-    /**
-     * Loads users from a CSV file and inserts them into the hash table.
-     * @param filename path to the CSV file to read
-     */
-    public void loadPeopleFromCSV(String filename) {
-        String line;
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            br.readLine(); // Skip header
-
-            while ((line = br.readLine()) != null) {
-
-                // can contain commas (ex: "Woman, Man")
-                ArrayList<String> cols = parseCsvLine(line);
-
-                // combine first and last names
-                String fullName = safeGet(cols, 1) + " " + safeGet(cols, 2);
-                String email = safeGet(cols, 3);
-                String mbti = safeGet(cols, 4);
-
-                // dataset columns 
-                String gender = safeGet(cols, 5);
-                String prefsRaw = safeGet(cols, 6);
-
-                // Create the People object and populate
-                People p = new People(fullName.trim(), email.trim());
-
-                //set mbti if it's non-empty
-                if (mbti != null && !mbti.isBlank()) {
-                    p.setMbtiSelfType(mbti.trim());
-                }
-
-                // Gender + genderPrefs are stored as strings parse
-                if (gender != null && !gender.isBlank()) {
-                    p.setGender(gender);
-                }
-                if (prefsRaw != null && !prefsRaw.isBlank()) {
-                    p.setGenderPreferencesFromString(prefsRaw);
-                }
-
-                // insert the person in hashtable
-                this.insert(p);
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
-    /**
-     * handles gender and gender preferences with commas
-     * @param line one row of the CSV file
-     * @return ArrayList of column values for that row
-     */
-    private static ArrayList<String> parseCsvLine(String line) {
-        ArrayList<String> out = new ArrayList<>();
-        if (line == null) return out;
-
-        StringBuilder current = new StringBuilder();
-        boolean inQuotes = false;
-
-        for (int i = 0; i < line.length(); i++) {
-            char c = line.charAt(i);
-
-            // inside quotes handle commas
-            if (c == '"') {
-                inQuotes = !inQuotes;
-                continue;
-            }
-
-            // treat commas as separators if we're not inside a quoted field
-            if (c == ',' && !inQuotes) {
-                out.add(current.toString().trim());
-                current.setLength(0);
-            } else {
-                current.append(c);
-            }
-        }
-
-        // add the final column
-        out.add(current.toString().trim());
-        return out;
-    }
-
-    /**
-     * reads a column from a parsed CSV row.
-     * @param cols parsed columns
-     * @param idx index to read
-     * @return the string at that index, or "" if not available
-     */
-    private static String safeGet(ArrayList<String> cols, int idx) {
-        if (cols == null || idx < 0 || idx >= cols.size()) return "";
-        return cols.get(idx) == null ? "" : cols.get(idx);
-    }
-
-
-    /**
-     * loads who likes who or who is friends from another csv
-     * @param filename name of the relationship file
-     */
-    public void loadRelationships(String filename) {
-        String line;
-    
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            br.readLine(); // Skip header
-    
-            while ((line = br.readLine()) != null) {
-                String[] data = line.split(",");
-                if (data.length < 3) continue;
-    
-                String sourceEmail = data[0].trim();
-                String type = data[1].trim().toLowerCase();
-                String targetEmail = data[2].trim();
-    
-                // Find both people
-                People sourcePerson = this.get(sourceEmail);
-                People targetPerson = this.get(targetEmail);
-    
-                // Skip invalid rows
-                if (sourcePerson == null || targetPerson == null) continue;
-    
-                // Use LikeMatcher so matches are handled correctly
-                LikeMatcher matcher = new LikeMatcher(sourcePerson);
-    
-                if (type.equals("like")) {
-                    matcher.RomanticLiker(targetPerson);
-                    targetPerson.incrementLikedByCount(); // keep popularity consistent
-                }
-                else if (type.equals("friend")) {
-                    matcher.FriendLiker(targetPerson);
-                }
-            }
-    
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-    
     /**
      * Visualization of the Hash Table
      * Shows
@@ -407,109 +355,48 @@ public class PeopleHashTable implements MatchDatabase {
         System.out.println("==================================================================\n");
     }
     /**
-     * Prints the full list of 'Likes' and 'Friends' for every active user.
+     * how many extra probes a lookup of every active person takes, plus the max, the
+     * histogram and the load factor (deleted slots included, probing walks over them)
+     * @return the current stats
      */
-    public void printDetailedRelations() {
-        System.out.println("\n==================== RELATIONSHIP AUDIT ==========================");
-        for (int i = 0; i < array.length; i++) {
-            if (array[i] != null && array[i].isActive) {
-                People p = array[i].element;
-                System.out.println("User: " + p.getName() + " (" + p.getEmail() + ")");
-                System.out.println("   -> Friends: " + p.getFriendEmails()); 
-                System.out.println("   -> Likes:   " + p.getLikedEmails());  
-                System.out.println("------------------------------------------------------------------");
+    public ProbeStats probeStats() {
+        int[] lengths = new int[currentSize];
+        int n = 0;
+        for (HashEntry entry : array) {
+            if (entry != null && entry.isActive) {
+                lengths[n++] = probeLength(entry.element.getEmail());
             }
         }
-        System.out.println("==================================================================\n");
+        return new ProbeStats("quadratic", hashStrategy.name(), array.length, occupied - currentSize, lengths);
     }
+
     /**
-     * the main matching algorithm that finds someone compatible for the user
-     * @param email email of the person who needs a match
-     * @return a person object that matches or null if nobody is found
+     * the sizes behind probeStats without walking anything
+     * @return stats with empty probe fields
      */
-    public People findMatch(String email) {
-        People seeker = get(email);
-        if (seeker == null) {
-            System.out.println("User not found: " + email);
-            return null;
-        }
-
-        // start at a random index to vary the results
-        int startIndex = (int) (Math.random() * array.length);
-
-        // Loop through the entire table once
-        for (int i = 0; i < array.length; i++) {
-            //to wrap around the array
-            int currentIndex = (startIndex + i) % array.length;
-            HashEntry entry = array[currentIndex];
-
-            // Skip empty slots, inactive slots, or the user themselves
-            if (entry == null || !entry.isActive || entry.element == seeker) {
-                continue;
-            }
-
-            People candidate = entry.element;
-
-            // If they already mutually like each other, skip this candidate.
-            boolean seekerLikesCandidate = seeker.getLikedEmails().contains(candidate.getEmail());
-            boolean candidateLikesSeeker = candidate.getLikedEmails().contains(seeker.getEmail());
-            
-            if (seekerLikesCandidate && candidateLikesSeeker) {
-                continue; // They are already a match, so don't suggest them again.
-            }
-            // ------------------------------
-
-            //if the genders are not compatible, dont suggest them
-            if (!seeker.isMutuallyRomanticallyCompatible(candidate)) {
-                continue;
-            }
-
-            //Statistical compatibility check (The 33% Rule)
-            if (isCompatible(seeker, candidate) && isCompatible(candidate, seeker)) {
-                return candidate; // Match found, you guys deserve love!
-            }
-        }
-
-        return null; // No new match found
+    public ProbeStats loadStats() {
+        return ProbeStats.summary("quadratic", hashStrategy.name(), array.length, currentSize, occupied - currentSize);
     }
 
     /**
-     * math helper to see if two people fit each others preferences
-     * @param judge the person who has preferences
-     * @param subject the person being checked against those preferences
-     * @return true if they match well enough false if not
+     * same walk as findPos but counts the steps
      */
-    private boolean isCompatible(People judge, People subject) {
-        // Using validLikes so 'NA' people don't mess up the ratio
-        int totalValid = judge.getValidLikes(); 
-        
-        // If no valid data points, assume they are okay with anyone
-        if (totalValid == 0) return true;
-
-        ArrayList<Integer> judgePrefs = judge.getMbtiStats();
-        ArrayList<Integer> subjectType = subject.getMbtiSelfType();
-
-        for (int k = 0; k < 4; k++) {
-            double score = judgePrefs.get(k);
-            
-            // divide by the count of valid people only
-            double ratio = score / totalValid;
-            
-            int subjectTrait = subjectType.get(k); 
-
-            // for each personality type if they have a preference as strong as + or - 0.33 we consider that
-            if (ratio > 0.33) {
-                if (subjectTrait != 1) return false;
-            }
-            else if (ratio < -0.33) {
-                if (subjectTrait != -1) return false;
+    private int probeLength(String key) {
+        int offset = 1;
+        int currentPos = myHash(key);
+        int steps = 0;
+        while (array[currentPos] != null &&
+               !(array[currentPos].isActive && array[currentPos].element.getEmail().equals(key))) {
+            currentPos += offset;
+            offset += 2;
+            if (currentPos >= array.length) {
+                currentPos -= array.length;
             }
+            steps++;
         }
-        return true;
+        return steps;
     }
 
-    
-    
     /**
      * gets a list of everyone currently active in the system
      * @return arraylist containing all the people objects
@@ -523,167 +410,4 @@ public class PeopleHashTable implements MatchDatabase {
     }
     return activeList;
     }
-
-    /**
-     * Helper Method for Autocomplete:
-     * Returns true if the prefix matches any substring in the name
-     */
-
-    private boolean matchesNameToken(String fullName, String prefix){
-        String normPrefix = prefix.toLowerCase();
-        String[] tokens = fullName.toLowerCase().split(" ");
-
-        for(String token : tokens){
-            if(token.contains(normPrefix)){
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-    /**
-     * Autocomplete suggestions:
-     * Given a name prefix, return users whose names contain a token 
-     * starting with that prefix, sorted by popularity (likedByCount, descending)
-     * 
-     * This is used while the user is still typing, before final search.
-     */
-    public ArrayList<People> autocompleteByPopularity(String prefix){
-        ArrayList<People> result = new ArrayList<>();
-        if(prefix == null) return result;
-
-        String normalized = prefix.toLowerCase();
-
-        //Collect all matched names
-        ArrayList<People> candidates = new ArrayList<>();
-        for(People p: getAllPeople()){
-            String name = p.getName();
-            if(name == null) continue;
-            if(matchesNameToken(name, normalized)){
-                candidates.add(p);
-            }
-        }
-
-        // Sort by popularity: likedByCount descending
-        candidates.sort((a,b) -> Integer.compare(b.getLikedByCount(), a.getLikedByCount()));
-
-        result.addAll(candidates);
-        return result;
-    }
-
-    /**
-     * Helper function: Calculate MBTI matching score
-     * Uses same logic as isCompatible, but returns a numeric score in [0,1]
-     */
-
-    private double computeMbtiMatchScore(People judge, People subject) {
-        int totalValid = judge.getValidLikes();
-    
-        // If no valid data points, judge has no strong prefs yet → neutral
-        if (totalValid == 0) {
-            return 0.5;
-        }
-    
-        ArrayList<Integer> judgePrefs = judge.getMbtiStats();
-        ArrayList<Integer> subjectType = subject.getMbtiSelfType();
-    
-        double scoreSum = 0.0;
-    
-        for (int k = 0; k < 4; k++) {
-            double prefScore = judgePrefs.get(k);
-            double ratio = prefScore / totalValid;  // same ratio logic
-            int subjectTrait = subjectType.get(k); 
-    
-            if (ratio > 0.33) {
-                // Judge strongly prefers +1 here
-                if (subjectTrait == 1) {
-                    scoreSum += 1.0;   // matched strong preference
-                } // else +0 (mismatch)
-            } else if (ratio < -0.33) {
-                // Judge strongly prefers -1 here
-                if (subjectTrait == -1) {
-                    scoreSum += 1.0;   // matched strong preference
-                } // else +0 (mismatch)
-            } else {
-                // Judge is neutral on this dimension → give partial credit
-                scoreSum += 0.5;
-            }
-        }
-    
-        // Normalize to [0, 1]
-        return scoreSum / 4.0;
-    }
-
-
-    /**
-     * Full search:
-     * Given the current user's email and a name query (which might still be partial)
-     * find all matching users and rank them by MBTI compatibility score
-     * (higher is better), then by popularity as a tiebreaker.
-     * 
-     * This is used after the user finishes typing and clicks "Search".
-     */
-    public ArrayList<People> searchByNameRankedByMbti(String nameQuery, String currentUserEmail){
-        ArrayList<People> result = new ArrayList<>();
-        People currentUser = get(currentUserEmail);
-
-        if(currentUser == null || nameQuery == null){
-            return result;
-        }
-
-        String normalized = nameQuery.toLowerCase();
-        ArrayList<SearchCandidate> candidates = new ArrayList<>();
-
-        for(People p: getAllPeople()){
-            //Skip self
-            if(p == currentUser) continue;
-
-            String name = p.getName();
-            if(name == null) continue;
-
-            //only show people with prefered gender
-            if (!currentUser.isMutuallyRomanticallyCompatible(p)) {
-                continue;
-            }
-            
-            boolean ok = isCompatible(currentUser, p) && isCompatible(p, currentUser);
-
-            if(matchesNameToken(name, normalized)){
-                double mbtiScore = computeMbtiMatchScore(currentUser, p);
-                int popularity = p.getLikedByCount();
-                candidates.add(new SearchCandidate(p, mbtiScore, popularity));
-
-        
-            }
-
-            //Sort by MBTI score (desc), then popularity (desc)
-            candidates.sort((a,b) -> {
-                int cmp = Double.compare(b.mbtiScore, a.mbtiScore);
-                if(cmp != 0) return cmp;
-                return Integer.compare(b.popularity, a.popularity);
-            });
-
-            for(SearchCandidate c: candidates){
-                result.add(c.person);
-            }
-
-            return result;
-        }
-        return result;
-    }
-
-    private static class SearchCandidate{
-        People person;
-        double mbtiScore;
-        int popularity;
-
-        SearchCandidate(People person, double mbtiScore, int popularity){
-            this.person = person;
-            this.mbtiScore = mbtiScore;
-            this.popularity = popularity;
-        }
-    }
-
-
-}
\ No newline at end of file
+}
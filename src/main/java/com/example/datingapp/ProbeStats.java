@@ -0,0 +1,72 @@
+package com.example.datingapp;
+import java.util.Arrays;
+
+/**
+ * how clustered a hash table is right now: for every stored person, how many extra slots a
+ * lookup of their email visits before it finds them
+ *
+ * histogram[k] is the number of people found after k extra probes (0 = in their home
+ * slot). the fields are public so the admin endpoint can send it as json as is
+ * @author Taha
+ */
+public class ProbeStats {
+
+    public final String backend;
+    public final String hashStrategy;
+    public final int capacity;      // slots in the table
+    public final int entries;       // live people
+    public final int deleted;       // lazy deleted slots still taking up room
+    public final double loadFactor; // (entries + deleted) / capacity
+    public final int maxProbeLength;
+    public final double averageProbeLength;
+    public final int[] histogram;
+
+    /**
+     * @param probeLengths how many extra probes each live entry needs, one per entry
+     */
+    public ProbeStats(String backend, String hashStrategy, int capacity, int deleted, int[] probeLengths) {
+        this(backend, hashStrategy, capacity, probeLengths.length, deleted, probeLengths);
+    }
+
+    private ProbeStats(String backend, String hashStrategy, int capacity, int entries, int deleted, int[] probeLengths) {
+        this.backend = backend;
+        this.hashStrategy = hashStrategy;
+        this.capacity = capacity;
+        this.entries = entries;
+        this.deleted = deleted;
+        this.loadFactor = capacity == 0 ? 0 : (double) (entries + deleted) / capacity;
+
+        int max = 0;
+        long total = 0;
+        for (int len : probeLengths) {
+            max = Math.max(max, len);
+            total += len;
+        }
+        this.maxProbeLength = max;
+        this.averageProbeLength = probeLengths.length == 0 ? 0 : (double) total / probeLengths.length;
+        this.histogram = new int[probeLengths.length == 0 ? 0 : max + 1];
+        for (int len : probeLengths) histogram[len]++;
+    }
+
+    /**
+     * just the sizes, no probe lengths, cheap enough for a metrics scrape
+     */
+    public static ProbeStats summary(String backend, String hashStrategy, int capacity, int entries, int deleted) {
+        return new ProbeStats(backend, hashStrategy, capacity, entries, deleted, new int[0]);
+    }
+
+    /**
+     * for storage whose slots we can't see (ConcurrentHashMap), only the size is known and
+     * the probe fields stay empty
+     */
+    public static ProbeStats unavailable(String backend, String hashStrategy, int entries) {
+        return new ProbeStats(backend, hashStrategy, 0, entries, 0, new int[0]);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s/%s: %d entries, %d deleted, capacity %d, load %.2f, max probe %d, avg probe %.2f, histogram %s",
+                             backend, hashStrategy, entries, deleted, capacity, loadFactor,
+                             maxProbeLength, averageProbeLength, Arrays.toString(histogram));
+    }
+}
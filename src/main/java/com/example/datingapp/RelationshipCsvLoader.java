@@ -0,0 +1,186 @@
+package com.example.datingapp;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * fast reader for relationshipsNew.csv style files
+ *
+ * the file is memory mapped and parsed on all cores (see MappedCsvReader). every row is
+ * turned into a pair of dense ids right away, so the result is a few int arrays instead
+ * of a String[] and a LikeMatcher per row. files are usually grouped by the person doing
+ * the liking, so the last source email is remembered and not looked up again.
+ * LikeMatcher.likeAll applies the ids to the graph in bulk.
+ *
+ * columns: source email, type (like / friend), target email
+ * @author Taha
+ */
+public class RelationshipCsvLoader {
+
+    private static final byte[] LIKE = "like".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FRIEND = "friend".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * an edge list as two parallel int arrays, from[i] -> to[i]
+     */
+    public static class Edges {
+        public int[] from;
+        public int[] to;
+        public int count;
+
+        Edges(int capacity) {
+            from = new int[Math.max(capacity, 4)];
+            to = new int[from.length];
+        }
+
+        void add(int a, int b) {
+            if (count == from.length) {
+                from = Arrays.copyOf(from, count * 2);
+                to = Arrays.copyOf(to, count * 2);
+            }
+            from[count] = a;
+            to[count++] = b;
+        }
+
+        void addAll(Edges other) {
+            if (count + other.count > from.length) {
+                from = Arrays.copyOf(from, count + other.count);
+                to = Arrays.copyOf(to, count + other.count);
+            }
+            System.arraycopy(other.from, 0, from, count, other.count);
+            System.arraycopy(other.to, 0, to, count, other.count);
+            count += other.count;
+        }
+    }
+
+    /**
+     * everything one file contained, likes and friend likes kept apart
+     */
+    public static class Result {
+        public final Edges likes;
+        public final Edges friends;
+
+        Result(Edges likes, Edges friends) {
+            this.likes = likes;
+            this.friends = friends;
+        }
+    }
+
+    /**
+     * reads every row and resolves both emails to graph ids
+     * rows with an unknown email or type are skipped like loadRelationships always did
+     * @param filename path to the csv file
+     * @param lookup finds a person by email (the database's get), called from several threads
+     * @return the like and friend edges in file order
+     * @throws IOException if the file can't be read
+     */
+    public static Result load(String filename, Function<String, People> lookup) throws IOException {
+        List<Result> parts = MappedCsvReader.parseChunks(filename, data -> parseChunk(data, lookup));
+
+        int likes = 0;
+        int friends = 0;
+        for (Result part : parts) {
+            likes += part.likes.count;
+            friends += part.friends.count;
+        }
+        Result out = new Result(new Edges(likes), new Edges(friends));
+        for (Result part : parts) {
+            out.likes.addAll(part.likes);
+            out.friends.addAll(part.friends);
+        }
+        return out;
+    }
+
+    /**
+     * parses one chunk of whole lines
+     */
+    private static Result parseChunk(byte[] data, Function<String, People> lookup) {
+        Result out = new Result(new Edges(data.length / 60), new Edges(16));
+        int[] fieldStart = new int[3];
+        int[] fieldEnd = new int[3];
+
+        // last source seen, rows for one person usually come one after another
+        int lastStart = -1;
+        int lastEnd = -1;
+        People lastSource = null;
+
+        int pos = 0;
+        while (pos < data.length) {
+            int fields = 0;
+            int fs = pos;
+            while (pos < data.length && data[pos] != '\n') {
+                if (data[pos] == ',') {
+                    if (fields < 3) {
+                        fieldStart[fields] = fs;
+                        fieldEnd[fields] = pos;
+                    }
+                    fields++;
+                    fs = pos + 1;
+                }
+                pos++;
+            }
+            if (fields < 3) {
+                fieldStart[fields] = fs;
+                fieldEnd[fields] = pos;
+            }
+            fields++;
+            pos++; // skip the newline
+
+            if (fields < 3) continue;
+            for (int f = 0; f < 3; f++) {
+                while (fieldStart[f] < fieldEnd[f] && (data[fieldStart[f]] & 0xFF) <= ' ') fieldStart[f]++;
+                while (fieldEnd[f] > fieldStart[f] && (data[fieldEnd[f] - 1] & 0xFF) <= ' ') fieldEnd[f]--;
+            }
+
+            Edges edges;
+            if (isType(data, fieldStart[1], fieldEnd[1], LIKE)) {
+                edges = out.likes;
+            } else if (isType(data, fieldStart[1], fieldEnd[1], FRIEND)) {
+                edges = out.friends;
+            } else {
+                continue;
+            }
+
+            People source;
+            if (lastSource != null && Arrays.equals(data, fieldStart[0], fieldEnd[0], data, lastStart, lastEnd)) {
+                source = lastSource;
+            } else {
+                source = lookup.apply(text(data, fieldStart[0], fieldEnd[0]));
+                lastSource = source;
+                lastStart = fieldStart[0];
+                lastEnd = fieldEnd[0];
+            }
+            People target = lookup.apply(text(data, fieldStart[2], fieldEnd[2]));
+
+            // Skip invalid rows
+            if (source == null || target == null) continue;
+            edges.add(source.getId(), target.getId());
+        }
+        return out;
+    }
+
+    /**
+     * case insensitive compare of the type column without making a String
+     * anything that isn't plain ascii goes through toLowerCase like before
+     */
+    private static boolean isType(byte[] data, int start, int end, byte[] type) {
+        for (int i = start; i < end; i++) {
+            if (data[i] < 0) {
+                return text(data, start, end).toLowerCase().equals(new String(type, StandardCharsets.US_ASCII));
+            }
+        }
+        if (end - start != type.length) return false;
+        for (int i = 0; i < type.length; i++) {
+            int b = data[start + i];
+            if (b >= 'A' && b <= 'Z') b += 'a' - 'A';
+            if (b != type[i]) return false;
+        }
+        return true;
+    }
+
+    private static String text(byte[] data, int start, int end) {
+        return new String(data, start, end - start, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,480 @@
+package com.example.datingapp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * every like, friend like and match in one database, stored by dense int ids
+ *
+ * when a database inserts a person they get a small id (0, 1, 2, ...), so people can be
+ * found by array index instead of hashing their email again. a removed persons id goes
+ * back into use once every relation has been compacted since, by then no edge points at
+ * it any more, so the arrays stay as big as the people in the database and not as big as
+ * everyone who was ever in it. each kind of relationship is
+ * a CsrAdjacency (compressed sparse row graph with a small overlay for live writes), so an
+ * edge costs 4 bytes instead of a String reference plus a list slot.
+ *
+ * a read/write lock guards the arrays: lookups from request threads run together, writes
+ * take turns. LikeMatcher still locks both people's lanes so its check-then-update is atomic.
+ * @author Taha
+ */
+public class RelationshipGraph {
+
+    /**
+     * the four kinds of edges we keep
+     */
+    public enum Relation { LIKE, FRIEND, LIKE_MATCH, FRIEND_MATCH }
+
+    // where people outside any database look, nobody is ever registered in it so it stays
+    // empty: lookups find nothing and new edges are ignored
+    private static final RelationshipGraph NONE = new RelationshipGraph();
+
+    // removed ids wait here until every relation is compacted, then they can be handed out again
+    private static final int MIN_PENDING_BEFORE_COMPACT = 1024;
+
+    private People[] people = new People[16]; // id -> person, null once they are removed
+    private int nextId = 0;
+    private final CsrAdjacency[] relations = new CsrAdjacency[Relation.values().length];
+    // removed ids in the order they were removed, edges to them may still be around
+    private int[] pending = new int[16];
+    private int pendingCount = 0;
+    // per relation how many of pending it has dropped the edges of (the ones before its last compaction)
+    private final int[] cleanUpTo = new int[Relation.values().length];
+    // ids nobody points at any more, reused before nextId grows
+    private int[] free = new int[16];
+    private int freeCount = 0;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public RelationshipGraph() {
+        for (int i = 0; i < relations.length; i++) {
+            relations[i] = new CsrAdjacency();
+        }
+    }
+
+    /**
+     * the graph of people that aren't in a database (never inserted or removed again)
+     */
+    static RelationshipGraph none() {
+        return NONE;
+    }
+
+    /**
+     * gives the person a free id in this graph, a reused one if there is one
+     * a person belongs to the graph of the last database that registered them
+     * @param p the person being inserted
+     */
+    public void register(People p) {
+        if (this == NONE) throw new IllegalStateException("nobody can be registered outside a database");
+        lock.writeLock().lock();
+        try {
+            if (p.getGraph() == this && p.getId() >= 0 && p.getId() < nextId && people[p.getId()] == p) {
+                return; // already here
+            }
+            if (freeCount == 0 && pendingCount >= Math.max(MIN_PENDING_BEFORE_COMPACT, nextId / 4)) {
+                // enough removed ids piled up, one compaction of everything makes them all reusable
+                compactAll();
+            }
+            int id;
+            if (freeCount > 0) {
+                id = free[--freeCount];
+            } else {
+                if (nextId == people.length) {
+                    people = Arrays.copyOf(people, people.length * 2);
+                }
+                id = nextId++;
+            }
+            people[id] = p;
+            p.attach(this, id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * registers a whole batch with one lock and at most one array resize
+     * @param batch people that were just inserted
+     */
+    public void registerAll(List<People> batch) {
+        lock.writeLock().lock();
+        try {
+            if (nextId + batch.size() > people.length) {
+                people = Arrays.copyOf(people, Math.max(people.length * 2, nextId + batch.size()));
+            }
+            for (People p : batch) {
+                register(p);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * takes the person out, edges pointing at them are skipped from now on and dropped at the
+     * next compaction, after which their id can go to someone new. the person itself is
+     * detached so it can't reach whoever gets the id later
+     * @param p the person being removed
+     */
+    public void unregister(People p) {
+        lock.writeLock().lock();
+        try {
+            int id = p.getId();
+            if (p.getGraph() == this && id >= 0 && id < nextId && people[id] == p) {
+                people[id] = null;
+                p.attach(null, -1);
+                if (pendingCount == pending.length) pending = Arrays.copyOf(pending, pendingCount * 2);
+                pending[pendingCount++] = id;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * forgets every person and edge
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            for (int id = 0; id < nextId; id++) {
+                if (people[id] != null && people[id].getGraph() == this) people[id].attach(null, -1);
+            }
+            people = new People[16];
+            nextId = 0;
+            for (int i = 0; i < relations.length; i++) {
+                relations[i] = new CsrAdjacency();
+            }
+            pendingCount = 0;
+            freeCount = 0;
+            Arrays.fill(cleanUpTo, 0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * looks a person up by id, no hashing
+     * @param id the dense id
+     * @return the person or null if the id is unused or removed
+     */
+    public People person(int id) {
+        lock.readLock().lock();
+        try {
+            return (id >= 0 && id < nextId) ? people[id] : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * how many ids are in use, the highest id plus one. removed people count until their id is reused
+     */
+    public int idCount() {
+        lock.readLock().lock();
+        try {
+            return nextId;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * adds the edge from -> to
+     * @return true if it is new
+     */
+    public boolean add(Relation r, People from, People to) {
+        lock.writeLock().lock();
+        try {
+            if (!members(from, to)) return false;
+            CsrAdjacency adj = relations[r.ordinal()];
+            boolean changed = adj.add(from.getId(), to.getId());
+            if (changed && adj.needsCompaction()) {
+                compact(r.ordinal());
+            }
+            return changed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * removes the edge from -> to
+     * @return true if it was there
+     */
+    public boolean remove(Relation r, People from, People to) {
+        lock.writeLock().lock();
+        try {
+            if (!members(from, to)) return false;
+            return relations[r.ordinal()].remove(from.getId(), to.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * checks for the edge from -> to
+     */
+    public boolean contains(Relation r, People from, People to) {
+        lock.readLock().lock();
+        try {
+            if (from.getGraph() != this || to.getGraph() != this) return false;
+            return relations[r.ordinal()].contains(from.getId(), to.getId());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * checks for the edge from -> to by id, for bulk code that already has the ids
+     */
+    public boolean contains(Relation r, int from, int to) {
+        lock.readLock().lock();
+        try {
+            if (from < 0 || from >= nextId || to < 0 || to >= nextId) return false;
+            return relations[r.ordinal()].contains(from, to);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * removes the edge from -> to by id
+     * @return true if it was there
+     */
+    public boolean remove(Relation r, int from, int to) {
+        lock.writeLock().lock();
+        try {
+            if (from < 0 || from >= nextId || to < 0 || to >= nextId) return false;
+            return relations[r.ordinal()].remove(from, to);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * adds a whole batch of edges with one lock and one rebuild of the csr arrays,
+     * linear in the number of edges and ids. edges that are already there are kept once
+     * @param r the kind of edge
+     * @param from source ids
+     * @param to target ids, to[i] goes with from[i]
+     * @param count how many entries of from / to are used
+     */
+    public void addAll(Relation r, int[] from, int[] to, int count) {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                if (!isAlive(from[i]) || !isAlive(to[i])) {
+                    throw new IllegalArgumentException("no person with id " + (isAlive(from[i]) ? to[i] : from[i]));
+                }
+            }
+            CsrAdjacency batch = CsrAdjacency.fromEdges(nextId, from, to, count);
+            relations[r.ordinal()].addAll(batch, nextId, this::isAlive);
+            compacted(r.ordinal()); // addAll drops removed people like compact does
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * ids of everyone p points to with this relation, sorted
+     */
+    public int[] neighbourIds(Relation r, People p) {
+        lock.readLock().lock();
+        try {
+            if (p.getGraph() != this) return new int[0];
+            return relations[r.ordinal()].row(p.getId());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * everyone p points to with this relation, resolved by id (no email hashing)
+     * removed people are skipped
+     */
+    public ArrayList<People> neighbours(Relation r, People p) {
+        lock.readLock().lock();
+        try {
+            ArrayList<People> out = new ArrayList<>();
+            if (p.getGraph() != this) return out;
+            for (int id : relations[r.ordinal()].row(p.getId())) {
+                People q = people[id];
+                if (q != null) out.add(q);
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * number of edges p has of this kind
+     */
+    public int degree(Relation r, People p) {
+        lock.readLock().lock();
+        try {
+            if (p.getGraph() != this) return 0;
+            return relations[r.ordinal()].degree(p.getId());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * folds every overlay back into the csr arrays and drops edges of removed people
+     * loaders call this once they are done
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            compactAll();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void compactAll() {
+        for (int r = 0; r < relations.length; r++) {
+            compact(r);
+        }
+    }
+
+    private void compact(int r) {
+        relations[r].compact(nextId, this::isAlive);
+        compacted(r);
+    }
+
+    /**
+     * relation r just dropped every edge of removed people, ids every relation has
+     * dropped since they were removed move from pending to free
+     */
+    private void compacted(int r) {
+        cleanUpTo[r] = pendingCount;
+        int clean = pendingCount;
+        for (int c : cleanUpTo) clean = Math.min(clean, c);
+        if (clean == 0) return;
+
+        if (freeCount + clean > free.length) free = Arrays.copyOf(free, Math.max(free.length * 2, freeCount + clean));
+        System.arraycopy(pending, 0, free, freeCount, clean);
+        freeCount += clean;
+        System.arraycopy(pending, clean, pending, 0, pendingCount - clean);
+        pendingCount -= clean;
+        for (int i = 0; i < cleanUpTo.length; i++) cleanUpTo[i] -= clean;
+    }
+
+    /**
+     * a frozen copy of the graph for DatabaseSnapshot, removed people are dropped and
+     * everyone left is renumbered 0..n-1 in id order
+     */
+    static class Export {
+        final People[] people;
+        final int[][] offsets = new int[Relation.values().length][];
+        final int[][] targets = new int[Relation.values().length][];
+        // what the likes did to everyone, read together with the edges
+        final int[] validLikes;
+        final int[] mbtiStats; // 4 per person [E/I, S/N, F/T, J/P]
+        final int[] likedBy;
+
+        Export(People[] people) {
+            this.people = people;
+            int n = people.length;
+            validLikes = new int[n];
+            mbtiStats = new int[4 * n];
+            likedBy = new int[n];
+            for (int i = 0; i < n; i++) {
+                validLikes[i] = people[i].getValidLikes();
+                ArrayList<Integer> stats = people[i].getMbtiStats();
+                for (int k = 0; k < 4; k++) mbtiStats[4 * i + k] = stats.get(k);
+                likedBy[i] = people[i].getLikedByCount();
+            }
+        }
+    }
+
+    /**
+     * compacts every relation and copies it out with the gaps of removed people closed,
+     * plus everyone's like counters. everything is taken under one lock so the relations
+     * agree with each other. a single like changes several edges and counters one after the
+     * other, so for a cut that agrees with the likes too call this inside
+     * LikeMatcher.withAllLanes
+     */
+    Export export() {
+        lock.writeLock().lock();
+        try {
+            int[] remap = new int[nextId];
+            int alive = 0;
+            for (int id = 0; id < nextId; id++) {
+                remap[id] = people[id] != null ? alive++ : -1;
+            }
+            People[] kept = new People[alive];
+            for (int id = 0; id < nextId; id++) {
+                if (remap[id] >= 0) kept[remap[id]] = people[id];
+            }
+
+            Export out = new Export(kept);
+            for (int r = 0; r < relations.length; r++) {
+                compact(r);
+                CsrAdjacency adj = relations[r];
+                int[] offsets = adj.baseOffsets();
+                int[] targets = adj.baseTargets();
+
+                // removed people have empty rows and nobody points at them any more, and
+                // remap keeps the order so every row stays sorted
+                int[] newOffsets = new int[alive + 1];
+                int[] newTargets = new int[targets.length];
+                for (int id = 0; id < nextId; id++) {
+                    if (remap[id] < 0) continue;
+                    newOffsets[remap[id]] = offsets[id];
+                    newOffsets[remap[id] + 1] = offsets[id + 1];
+                }
+                for (int i = 0; i < targets.length; i++) {
+                    newTargets[i] = remap[targets[i]];
+                }
+                out.offsets[r] = newOffsets;
+                out.targets[r] = newTargets;
+            }
+            return out;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * puts saved csr arrays back, everyone has to be registered already in the order they were saved
+     * @param offsets per relation row starts, one longer than the number of ids
+     * @param targets per relation edge targets, rows sorted
+     */
+    void restore(int[][] offsets, int[][] targets) {
+        lock.writeLock().lock();
+        try {
+            for (int r = 0; r < relations.length; r++) {
+                if (offsets[r].length != nextId + 1) {
+                    throw new IllegalArgumentException("saved graph has " + (offsets[r].length - 1)
+                            + " people but the database has " + nextId);
+                }
+            }
+            for (int r = 0; r < relations.length; r++) {
+                relations[r] = new CsrAdjacency(offsets[r], targets[r]);
+                cleanUpTo[r] = pendingCount; // the saved graph only has edges between people that were registered
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean isAlive(int id) {
+        return id >= 0 && id < nextId && people[id] != null;
+    }
+
+    /**
+     * checks both people live in this graph before an edge between them changes
+     * @return false if one of them isn't in any database (never inserted, or removed while
+     *         the like was on its way), there is nothing to record then
+     */
+    private boolean members(People from, People to) {
+        if (from.getGraph() == null || to.getGraph() == null) return false;
+        if (from.getGraph() != this || to.getGraph() != this) {
+            throw new IllegalArgumentException((from.getGraph() != this ? from : to).getEmail() + " is not in this database");
+        }
+        return true;
+    }
+}
@@ -0,0 +1,348 @@
+package com.example.datingapp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * MatchDatabase storage using Robin Hood linear probing over two parallel arrays:
+ * the cached hash of every email and the People in that slot
+ *
+ * - a probe compares the stored int hash first and only calls equals when the hashes
+ *   match, so walking past other people doesn't touch their People or String objects
+ * - Robin Hood: an insert that has probed further than the person sitting in a slot takes
+ *   that slot and keeps going with the displaced person, so probe lengths stay short and
+ *   even, and a lookup can stop as soon as it reaches someone closer to home than itself
+ * - remove shifts the following run back one slot instead of leaving a tombstone
+ * - growing reuses the cached hashes, no email is hashed again
+ *
+ * one read/write lock guards the arrays so the web server can use it too: lookups share
+ * the read lock, insert/remove take the write lock for the whole update (storage, name
+ * index, graph, candidate pool). pick it with datingapp.database.backend=robinhood,
+ * the HashTableBenchmarks jmh benchmark compares it with the other tables
+ * @author Taha
+ */
+public class RobinHoodPeopleTable extends AbstractMatchDatabase {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final double MAX_LOAD = 0.8;
+
+    private int[] hashes;     // 0 means empty, real hashes are never 0
+    private People[] people;
+    private int mask;         // capacity - 1, capacity is a power of two
+    private int count;
+    private int growAt;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final EmailHashStrategy hashStrategy; // only used on insert and lookup, resize reuses the cache
+
+    public RobinHoodPeopleTable() {
+        this(MIN_CAPACITY);
+    }
+
+    public RobinHoodPeopleTable(int expectedSize) {
+        this(expectedSize, EmailHashStrategy.STRING_HASH_MIXED);
+    }
+
+    /**
+     * @param expectedSize how many people to make room for up front
+     * @param hashStrategy how emails are hashed, the low bits pick the slot
+     */
+    public RobinHoodPeopleTable(int expectedSize, EmailHashStrategy hashStrategy) {
+        this.hashStrategy = hashStrategy;
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * finds a person using their email
+     * @param email the email of the person we want
+     * @return the person object if found otherwise null
+     */
+    public People get(String email) {
+        if (email == null) return null;
+        lock.readLock().lock();
+        try {
+            int slot = find(email, hash(email));
+            return slot < 0 ? null : people[slot];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * checks if a person is in the table
+     * @param email email to check
+     * @return true if they exist false otherwise
+     */
+    public boolean contains(String email) {
+        return get(email) != null;
+    }
+
+    /**
+     * adds a new person, the first person with an email wins. the indexes are updated
+     * before the write lock is released so readers never see half an insert
+     * @param person the person object to add
+     */
+    @Override
+    public void insert(People person) {
+        lock.writeLock().lock();
+        try {
+            super.insert(person);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * removes a person and drops them from the indexes under the write lock
+     * @param email email of the person to remove
+     */
+    @Override
+    public void remove(String email) {
+        lock.writeLock().lock();
+        try {
+            super.remove(email);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * bulk insert under one write lock
+     * @param people the people to add, in order
+     */
+    @Override
+    public void insertAll(List<People> people) {
+        lock.writeLock().lock();
+        try {
+            super.insertAll(people);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    protected boolean insertEntry(People person) {
+        String email = person.getEmail();
+        int h = hash(email);
+        lock.writeLock().lock();
+        try {
+            if (find(email, h) >= 0) return false; // duplicate, the first one stays
+            if (count >= growAt) resize(hashes.length * 2);
+            place(h, person);
+            count++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    protected People removeEntry(String email) {
+        if (email == null) return null;
+        lock.writeLock().lock();
+        try {
+            int slot = find(email, hash(email));
+            if (slot < 0) return null;
+            People removed = people[slot];
+
+            // backward shift: pull the rest of the run one slot closer to home
+            int next = (slot + 1) & mask;
+            while (hashes[next] != 0 && distance(next) > 0) {
+                hashes[slot] = hashes[next];
+                people[slot] = people[next];
+                slot = next;
+                next = (next + 1) & mask;
+            }
+            hashes[slot] = 0;
+            people[slot] = null;
+            count--;
+
+            // give memory back after mass removals. sized for twice the people left (load
+            // about 0.4), so inserts right after a shrink don't push it straight back to growing
+            if (hashes.length > MIN_CAPACITY && count < hashes.length / 8) {
+                resize(capacityFor(2 * count));
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    protected void ensureCapacity(int expectedSize) {
+        lock.writeLock().lock();
+        try {
+            int capacity = capacityFor(expectedSize);
+            if (capacity > hashes.length) resize(capacity);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    protected int size() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * slot of the email or -1, caller holds a lock
+     */
+    private int find(String email, int h) {
+        int slot = h & mask;
+        for (int dist = 0; ; dist++) {
+            int stored = hashes[slot];
+            // an empty slot, or someone closer to home than we'd be, means it isn't here
+            if (stored == 0 || distance(slot) < dist) return -1;
+            if (stored == h && people[slot].getEmail().equals(email)) return slot;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * puts a person whose email is known to be absent, caller holds the write lock
+     * and made sure there is room
+     */
+    private void place(int h, People person) {
+        int slot = h & mask;
+        int dist = 0;
+        while (hashes[slot] != 0) {
+            int theirs = distance(slot);
+            if (theirs < dist) {
+                // they are closer to home than us, take their slot and carry them on
+                int th = hashes[slot];
+                People tp = people[slot];
+                hashes[slot] = h;
+                people[slot] = person;
+                h = th;
+                person = tp;
+                dist = theirs;
+            }
+            slot = (slot + 1) & mask;
+            dist++;
+        }
+        hashes[slot] = h;
+        people[slot] = person;
+    }
+
+    /**
+     * how far the person in slot sits from the slot their hash points to
+     */
+    private int distance(int slot) {
+        return (slot - (hashes[slot] & mask)) & mask;
+    }
+
+    /**
+     * moves everyone to arrays of the new capacity using the cached hashes
+     */
+    private void resize(int capacity) {
+        long start = System.nanoTime();
+        int[] oldHashes = hashes;
+        People[] oldPeople = people;
+        allocate(capacity);
+        for (int i = 0; i < oldHashes.length; i++) {
+            if (oldHashes[i] != 0) place(oldHashes[i], oldPeople[i]);
+        }
+        metrics.rehash(oldHashes.length, capacity, System.nanoTime() - start);
+    }
+
+    private void allocate(int capacity) {
+        hashes = new int[capacity];
+        people = new People[capacity];
+        mask = capacity - 1;
+        growAt = (int) (capacity * MAX_LOAD);
+    }
+
+    /**
+     * smallest power of two that holds n people under the max load
+     */
+    private static int capacityFor(int n) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * MAX_LOAD < n + 1) capacity <<= 1;
+        return capacity;
+    }
+
+    /**
+     * the strategy's hash with 0 moved to 1, 0 is kept for empty
+     */
+    private int hash(String email) {
+        int h = hashStrategy.hash(email);
+        return h == 0 ? 1 : h;
+    }
+
+    /**
+     * gets a list of everyone currently in the system
+     * @return arraylist containing all the people objects
+     */
+    public ArrayList<People> getAllPeople() {
+        lock.readLock().lock();
+        try {
+            ArrayList<People> out = new ArrayList<>(count);
+            for (People p : people) {
+                if (p != null) out.add(p);
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * prints every slot with its probe distance
+     */
+    public void printTable() {
+        lock.readLock().lock();
+        try {
+            System.out.println("\n==================== ROBIN HOOD TABLE ============================");
+            System.out.printf("Table Size: %d | Active Items: %d | Load Factor: %.2f%n",
+                              hashes.length, count, (double) count / hashes.length);
+            System.out.println("------------------------------------------------------------------");
+            System.out.printf("%-6s | %-5s | %-35s | %-15s | %-15s%n",
+                              "IDX", "DIST", "EMAIL", "SELF (MBTI)", "PREFS (STATS)");
+            System.out.println("------------------------------------------------------------------");
+            for (int i = 0; i < hashes.length; i++) {
+                if (hashes[i] == 0) {
+                    System.out.printf("%-6d | %-5s | %-35s | %-15s | %-15s%n", i, "-", "---", "---", "---");
+                } else {
+                    People p = people[i];
+                    System.out.printf("%-6d | %-5d | %-35s | %-15s | %-15s%n",
+                                      i, distance(i), p.getEmail(), p.getMbtiSelfType(), p.getMbtiStats());
+                }
+            }
+            System.out.println("==================================================================\n");
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * the sizes behind probeStats without walking anything
+     * @return stats with empty probe fields
+     */
+    public ProbeStats loadStats() {
+        lock.readLock().lock();
+        try {
+            return ProbeStats.summary("robinhood", hashStrategy.name(), hashes.length, count, 0);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * probe distance of everyone (how far they sit from their home slot, which is what a
+     * lookup walks), the max, the histogram and the load factor. no tombstones here
+     * @return the current stats
+     */
+    public ProbeStats probeStats() {
+        lock.readLock().lock();
+        try {
+            int[] lengths = new int[count];
+            int n = 0;
+            for (int i = 0; i < hashes.length; i++) {
+                if (hashes[i] != 0) lengths[n++] = distance(i);
+            }
+            return new ProbeStats("robinhood", hashStrategy.name(), hashes.length, 0, lengths);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.datingapp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * keeps the k best items seen so far without sorting everything
+ *
+ * a heap of size k with the worst kept item on top: a new item either replaces it or is
+ * thrown away, so n items cost O(n log k) and O(k) memory
+ * @author Taha
+ */
+public class TopK<T> {
+
+    private final int k;
+    private final Comparator<? super T> bestFirst;
+    private final PriorityQueue<T> heap;
+
+    /**
+     * @param k how many items to keep
+     * @param bestFirst ordering where the best item comes first
+     */
+    public TopK(int k, Comparator<? super T> bestFirst) {
+        this.k = k;
+        this.bestFirst = bestFirst;
+        // worst on top so it is the one we compare against and drop
+        this.heap = new PriorityQueue<>(Math.max(1, Math.min(k, 64)), bestFirst.reversed());
+    }
+
+    /**
+     * keeps the item if it is among the k best so far
+     * @return true if it was kept
+     */
+    public boolean offer(T item) {
+        if (k <= 0) return false;
+        if (heap.size() < k) {
+            heap.offer(item);
+            return true;
+        }
+        if (bestFirst.compare(item, heap.peek()) < 0) {
+            heap.poll();
+            heap.offer(item);
+            return true;
+        }
+        return false;
+    }
+
+    public int size() {
+        return heap.size();
+    }
+
+    /**
+     * the kept items, best first
+     */
+    public ArrayList<T> sorted() {
+        ArrayList<T> out = new ArrayList<>(heap);
+        out.sort(bestFirst);
+        return out;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.datingapp;
+
+import java.util.concurrent.Executors;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * runs every request on its own virtual thread instead of Tomcat's pool of platform
+ * threads when datingapp.web.virtual-threads=true (Java 21)
+ *
+ * requests mostly wait (for the interaction log fsync, for a like lane, for the client),
+ * a virtual thread gives its carrier back while it waits, so the number of requests in
+ * flight follows the number of clients instead of server.tomcat.threads.max.
+ * the blocking spots on the request path use ReentrantLock or futures, not synchronized
+ * around slow work, so waiting threads don't pin their carrier
+ * @author Taha
+ */
+@Configuration
+@ConditionalOnProperty(name = "datingapp.web.virtual-threads", havingValue = "true")
+public class VirtualThreadConfig {
+
+    /**
+     * swaps the connector's worker pool for a thread per task executor of virtual threads
+     * @return the customizer Spring applies to the embedded Tomcat
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadExecutor() {
+        return handler -> handler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+}
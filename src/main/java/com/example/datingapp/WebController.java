@@ -1,40 +1,122 @@
 package com.example.datingapp;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 /**
  * @author LLM
  */
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 /**
  * REST controller used by the single-page HTML frontend.
  *
  * Responsibilities:
- * - Load users + relationships from CSV on startup
+ * - Load users + relationships on startup (binary snapshot if there is one, otherwise CSV)
+ * - Save a snapshot on shutdown and on demand
+ * - Log registrations/likes/friend-likes before applying them and replay the log on startup
  * - Provide endpoints used by the UI (login/register/autocomplete/interact/match/lists/table)
  * - Enforce privacy for the table view unless in Editor mode (isAdmin=true)
  *
  * NOTE: "Recommended matches" are stored here in the controller (in-memory) so we do NOT
  * have to add methods/fields to People.java.
+ *
+ * Every endpoint is timed by Spring (http.server.requests) and the database reports into
+ * MicrometerDatabaseMetrics, both are scraped from /actuator/prometheus.
+ *
+ * Tomcat calls these methods from many threads at once, so the database is a thread-safe
+ * backend (ConcurrentPeopleTable by default, RobinHoodPeopleTable with
+ * datingapp.database.backend=robinhood) and the controller's own maps/lists are concurrent
+ * or synchronized. With datingapp.web.virtual-threads=true (VirtualThreadConfig) each request
+ * gets its own virtual thread, likes are serialized per user by LikeMatcher's lanes.
  */
 @RestController
 @CrossOrigin(origins = "*")
 public class WebController {
 
-    private static PeopleHashTable database;
-    private static final List<String> globalMatchHistory = new ArrayList<>();
+    private static MatchDatabase database;
+    // Which storage backs the database, set from datingapp.database.backend
+    private static String backend = "concurrent";
+    // How the robinhood backend hashes emails, set from datingapp.database.hash
+    private static EmailHashStrategy hashStrategy = EmailHashStrategy.STRING_HASH_MIXED;
+    // findMatch scan lengths, hit counts, rehashes and load timings go to /actuator/prometheus
+    private static DatabaseMetrics metrics = DatabaseMetrics.NONE;
+    // LinkedHashSet keeps insertion order and makes the duplicate check O(1)
+    private static final Set<String> globalMatchHistory = Collections.synchronizedSet(new LinkedHashSet<>());
 
     // Recommended matches per user (email -> set of recommended emails)
-    // LinkedHashSet keeps insertion order and avoids duplicates.
-    private static final Map<String, LinkedHashSet<String>> recommendedByUser = new HashMap<>();
-
-    public WebController() {
+    // LinkedHashSet keeps insertion order and avoids duplicates, wrapped so threads can share it.
+    private static final Map<String, Set<String>> recommendedByUser = new ConcurrentHashMap<>();
+
+    // Binary snapshot of the database + recommendations, written on shutdown and by
+    // POST /api/admin/snapshot. Loading it skips CSV parsing and like replay entirely.
+    private static final String SNAPSHOT_FILE = "datingapp.snapshot";
+
+    // Append-only log of registrations/likes/friend-likes since the last snapshot, replayed on
+    // startup so nothing is lost on restart. Folded into the snapshot once it gets big.
+    private static final String LOG_DIR = "datingapp-log";
+    private static final long COMPACT_AFTER_BYTES = 64L << 20;
+    private static InteractionLog interactionLog;
+    private static final AtomicBoolean compacting = new AtomicBoolean(false);
+    // open /api/events streams, told about new matches and recommendations as they happen
+    private static final MatchEventHub events = new MatchEventHub();
+    // most interactions one /api/interact/batch request may carry
+    private static final int MAX_BATCH = 10_000;
+    // one snapshot at a time. a lock and not synchronized, a virtual thread waiting on a
+    // monitor through the whole disk write would hold on to its carrier thread
+    private static final ReentrantLock snapshotLock = new ReentrantLock();
+
+    public WebController(@Value("${datingapp.database.backend:concurrent}") String backend,
+                         @Value("${datingapp.database.hash:stringhash}") String hash,
+                         MeterRegistry registry) {
         if (database != null) return;
+        WebController.backend = backend;
+        try {
+            hashStrategy = EmailHashStrategy.named(hash);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Unknown datingapp.database.hash '" + hash + "', using stringhash");
+        }
+        metrics = new MicrometerDatabaseMetrics(registry, () -> database);
+        registry.gauge("datingapp.events.streams", events, MatchEventHub::streamCount);
 
-        database = new PeopleHashTable();
+        loadBaseline();
+
+        // Everything that happened after the baseline was written
+        try {
+            int replayed = InteractionLog.replay(Path.of(LOG_DIR), WebController::applyEntry);
+            if (replayed > 0) System.out.println("Replayed " + replayed + " logged interactions from " + LOG_DIR);
+            interactionLog = new InteractionLog(Path.of(LOG_DIR));
+        } catch (IOException e) {
+            System.out.println("Interaction log unavailable, changes will not survive a restart. Details: " + e.getMessage());
+        }
+    }
+
+    private static void loadBaseline() {
+        database = newDatabase();
+
+        // Prefer the snapshot, fall back to the CSVs if there is none or it is broken
+        if (Files.exists(Path.of(SNAPSHOT_FILE))) {
+            try {
+                restoreExtras(database.loadSnapshot(SNAPSHOT_FILE));
+                System.out.println("Database loaded from snapshot: " + SNAPSHOT_FILE);
+                return;
+            } catch (Exception e) {
+                System.out.println("Snapshot could not be loaded, reading CSV instead. Details: " + e.getMessage());
+                database = newDatabase();
+                recommendedByUser.clear();
+                globalMatchHistory.clear();
+            }
+        }
 
         // The UI expects real data from users.csv / relationshipsNew.csv.
         // Working directory can vary in Spring Boot, so try a few common locations.
@@ -50,7 +132,29 @@ public class WebController {
         }
     }
 
-    private String resolveCsvPath(String filename) {
+    /**
+     * An empty database of the configured backend. Only the thread-safe ones can be picked,
+     * PeopleHashTable is for single threaded use (Main, tests). The hash strategy only applies
+     * to robinhood, ConcurrentHashMap always uses String.hashCode.
+     */
+    private static MatchDatabase newDatabase() {
+        MatchDatabase db;
+        switch (backend.trim().toLowerCase()) {
+            case "robinhood":
+                db = new RobinHoodPeopleTable(0, hashStrategy);
+                break;
+            case "concurrent":
+                db = new ConcurrentPeopleTable();
+                break;
+            default:
+                System.out.println("Unknown datingapp.database.backend '" + backend + "', using concurrent");
+                db = new ConcurrentPeopleTable();
+        }
+        db.setMetrics(metrics);
+        return db;
+    }
+
+    private static String resolveCsvPath(String filename) {
         // 1) repo root
         if (Files.exists(Path.of(filename))) return filename;
         // 2) common Maven layout
@@ -60,25 +164,176 @@ public class WebController {
         return filename;
     }
 
+    // --- Snapshot ---
+
+    /**
+     * Saves everything when the server shuts down so the next start can skip the CSVs.
+     */
+    @PreDestroy
+    public void saveOnShutdown() {
+        events.close();
+        try {
+            saveSnapshot();
+            System.out.println("Snapshot written: " + SNAPSHOT_FILE);
+        } catch (IOException e) {
+            System.out.println("Snapshot could not be written, the interaction log still has everything. Details: " + e.getMessage());
+        }
+        if (interactionLog != null) {
+            try {
+                interactionLog.close();
+            } catch (IOException e) {
+                System.out.println("Interaction log did not close cleanly. Details: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes a snapshot on demand (Editor View / admin).
+     */
+    @PostMapping("/api/admin/snapshot")
+    public Map<String, Object> snapshot() {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            saveSnapshot();
+            response.put("status", "success");
+            response.put("message", "Snapshot written to " + SNAPSHOT_FILE);
+        } catch (IOException e) {
+            response.put("status", "error");
+            response.put("message", "Snapshot failed: " + e.getMessage());
+        }
+        return response;
+    }
+
+    // one snapshot at a time, two writers would fight over the temp file.
+    // with a log the snapshot becomes the new baseline and the older log segments are dropped
+    private static void saveSnapshot() throws IOException {
+        snapshotLock.lock();
+        try {
+            if (interactionLog != null) {
+                interactionLog.compact(WebController::writeSnapshot);
+            } else {
+                writeSnapshot();
+            }
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    private static void writeSnapshot() throws IOException {
+        Map<String, List<String>> recommendations = new LinkedHashMap<>();
+        for (Map.Entry<String, Set<String>> entry : recommendedByUser.entrySet()) {
+            synchronized (entry.getValue()) {
+                recommendations.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
+        }
+        List<String> history;
+        synchronized (globalMatchHistory) {
+            history = new ArrayList<>(globalMatchHistory);
+        }
+        database.saveSnapshot(SNAPSHOT_FILE, new DatabaseSnapshot.Extras(recommendations, history));
+    }
+
+    private static void restoreExtras(DatabaseSnapshot.Extras extras) {
+        for (Map.Entry<String, List<String>> entry : extras.recommendations.entrySet()) {
+            recommendedByUser.put(entry.getKey(), Collections.synchronizedSet(new LinkedHashSet<>(entry.getValue())));
+        }
+        globalMatchHistory.addAll(extras.matchHistory);
+    }
+
+    // --- Interaction log ---
+
+    /**
+     * Logs the change (waiting until it is on disk) and then applies it.
+     * Without a log the change is just applied.
+     * @return what applyEntry returned
+     */
+    private static boolean logged(InteractionLog.Entry entry) throws IOException {
+        if (interactionLog == null) return applyEntry(entry);
+        boolean result = interactionLog.append(entry, () -> applyEntry(entry));
+        compactIfBig();
+        return result;
+    }
+
+    /**
+     * Logs a batch of changes as one write (one fsync wait for all of them) and then runs
+     * apply, which has to make exactly those changes in the same order so replay matches.
+     * Without a log apply just runs.
+     * @return what apply returned
+     */
+    private static <T> T loggedAll(List<InteractionLog.Entry> entries, Supplier<T> apply) throws IOException {
+        if (interactionLog == null || entries.isEmpty()) return apply.get();
+        T result = interactionLog.appendAll(entries, apply);
+        compactIfBig();
+        return result;
+    }
+
+    // fold the log into a new snapshot in the background once it gets big
+    private static void compactIfBig() {
+        if (interactionLog.sizeBytes() > COMPACT_AFTER_BYTES && compacting.compareAndSet(false, true)) {
+            Thread compaction = new Thread(() -> {
+                try {
+                    saveSnapshot();
+                } catch (IOException e) {
+                    System.out.println("Interaction log compaction failed. Details: " + e.getMessage());
+                } finally {
+                    compacting.set(false);
+                }
+            }, "interaction-log-compaction");
+            compaction.setDaemon(true);
+            compaction.start();
+        }
+    }
+
+    /**
+     * Makes one logged change in memory, used for new requests and for replay on startup.
+     * Every kind only adds what isn't there yet, so applying a change twice does nothing.
+     * @return true if a like/friend-like created a new match
+     */
+    private static boolean applyEntry(InteractionLog.Entry entry) {
+        String[] f = entry.fields;
+        if (entry.kind == InteractionLog.Kind.REGISTER) {
+            if (f[1] == null) return false; // no email, nothing to store it under
+            People newPerson = new People(f[0], f[1]);
+            newPerson.setMbtiSelfType(f[2]);
+            if (f[3] != null) newPerson.setGender(f[3]);
+            if (f[4] != null) newPerson.setGenderPreferencesFromString(f[4]);
+            database.insert(newPerson);
+            return false;
+        }
+
+        People source = database.get(f[0]);
+        People target = database.get(f[1]);
+        if (source == null || target == null) return false;
+
+        LikeMatcher matcher = new LikeMatcher(source);
+        if (entry.kind == InteractionLog.Kind.LIKE) {
+            return matcher.RomanticLiker(target);
+        }
+        return matcher.FriendLiker(target);
+    }
+
     // --- Recommended match storage (in-memory) ---
 
-    private static void addRecommendation(String aEmail, String bEmail) {
-        if (aEmail == null || bEmail == null) return;
+    private static boolean addRecommendation(String aEmail, String bEmail) {
+        if (aEmail == null || bEmail == null) return false;
 
         String a = aEmail.trim().toLowerCase();
         String b = bEmail.trim().toLowerCase();
 
-        if (a.isEmpty() || b.isEmpty()) return;
-        if (a.equals(b)) return;
+        if (a.isEmpty() || b.isEmpty()) return false;
+        if (a.equals(b)) return false;
 
-        recommendedByUser.computeIfAbsent(a, k -> new LinkedHashSet<>()).add(b);
+        return recommendedByUser.computeIfAbsent(a, k -> Collections.synchronizedSet(new LinkedHashSet<>())).add(b);
     }
 
     private static List<String> getRecommendations(String email) {
         if (email == null) return new ArrayList<>();
         String key = email.trim().toLowerCase();
-        LinkedHashSet<String> set = recommendedByUser.getOrDefault(key, new LinkedHashSet<>());
-        return new ArrayList<>(set);
+        Set<String> set = recommendedByUser.get(key);
+        if (set == null) return new ArrayList<>();
+        synchronized (set) {
+            return new ArrayList<>(set);
+        }
     }
 
     /**
@@ -115,16 +370,19 @@ public class WebController {
 
     @PostMapping("/api/register")
     public Map<String, Object> registerUser(@RequestBody RegistrationRequest request) {
-        People newPerson = new People(request.name, request.email);
-        newPerson.setMbtiSelfType(request.mbti);
-
-        // Gender fields come from the frontend as strings (e.g. "Woman" or "Woman, Man")
-        if (request.gender != null) newPerson.setGender(request.gender);
-        if (request.genderPrefs != null) newPerson.setGenderPreferencesFromString(request.genderPrefs);
+        Map<String, Object> response = new HashMap<>();
 
-        database.insert(newPerson);
+        // Gender fields come from the frontend as strings (e.g. "Woman" or "Woman, Man"),
+        // applyEntry builds the person the same way when the log is replayed
+        try {
+            logged(InteractionLog.Entry.register(request.name, request.email, request.mbti,
+                                                 request.gender, request.genderPrefs));
+        } catch (IOException e) {
+            response.put("status", "error");
+            response.put("message", "Could not save the new user: " + e.getMessage());
+            return response;
+        }
 
-        Map<String, Object> response = new HashMap<>();
         response.put("status", "success");
         response.put("message", "User created: " + request.name);
         return response;
@@ -148,43 +406,165 @@ public class WebController {
             return response;
         }
 
-        LikeMatcher matcher = new LikeMatcher(source);
-
+        InteractionLog.Entry entry;
         if ("like".equalsIgnoreCase(request.type)) {
-            target.incrementLikedByCount();
+            entry = InteractionLog.Entry.like(source.getEmail(), target.getEmail());
+        } else if ("friend".equalsIgnoreCase(request.type)) {
+            entry = InteractionLog.Entry.friend(source.getEmail(), target.getEmail());
+        } else {
+            response.put("status", "error");
+            response.put("message", "Invalid interaction type");
+            return response;
+        }
 
-            // Detect whether a new mutual match was created by this action
-            int before = source.getLikedEmailsMatch() == null ? 0 : source.getLikedEmailsMatch().size();
-            matcher.RomanticLiker(target);
-            int after = source.getLikedEmailsMatch() == null ? 0 : source.getLikedEmailsMatch().size();
+        // the like goes to the log first, then RomanticLiker / FriendLiker run and tell us
+        // if a new mutual match was created (RomanticLiker also bumps popularity)
+        boolean matched;
+        try {
+            matched = logged(entry);
+        } catch (IOException e) {
+            response.put("status", "error");
+            response.put("message", "Could not save the interaction: " + e.getMessage());
+            return response;
+        }
 
-            if (after > before) {
-                response.put("message", "💘 MATCH! You and " + target.getName() + " liked each other.");
-            } else {
-                response.put("message", "You LIKED " + target.getName());
-            }
+        if (matched) events.publishPair(source, target, kindOf(entry));
 
-        } else if ("friend".equalsIgnoreCase(request.type)) {
-            int before = source.getFriendEmailsMatch() == null ? 0 : source.getFriendEmailsMatch().size();
-            matcher.FriendLiker(target);
-            int after = source.getFriendEmailsMatch() == null ? 0 : source.getFriendEmailsMatch().size();
+        if (entry.kind == InteractionLog.Kind.LIKE) {
+            response.put("message", matched
+                    ? "💘 MATCH! You and " + target.getName() + " liked each other."
+                    : "You LIKED " + target.getName());
+        } else {
+            response.put("message", matched
+                    ? "🧩 FRIEND MATCH! You and " + target.getName() + " friend-liked each other."
+                    : "You FRIEND-LIKED " + target.getName());
+        }
 
-            if (after > before) {
-                response.put("message", "🧩 FRIEND MATCH! You and " + target.getName() + " friend-liked each other.");
-            } else {
-                response.put("message", "You FRIEND-LIKED " + target.getName());
-            }
+        response.put("status", "success");
+        return response;
+    }
 
-        } else {
+    /**
+     * Many likes / friend-likes in one request, for bulk clients and importers.
+     *
+     * Body: a JSON array of {sourceEmail, targetEmail, type}, at most MAX_BATCH items.
+     * Items are grouped by source so every person is looked up once and gets one LikeMatcher,
+     * the valid ones are logged in one write and applied in that grouped order (the log gets
+     * the same order, so replay ends up identical). A bad item doesn't stop the rest.
+     *
+     * Response: counts plus one code per item, in request order:
+     * "ok", "match" (this item created a match), or why it was skipped:
+     * "not_found", "self", "invalid_type", "log_failed".
+     */
+    @PostMapping("/api/interact/batch")
+    public Map<String, Object> interactBatch(@RequestBody List<InteractionRequest> requests) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        if (requests == null || requests.size() > MAX_BATCH) {
             response.put("status", "error");
-            response.put("message", "Invalid interaction type");
+            response.put("message", "Send between 0 and " + MAX_BATCH + " interactions per batch.");
             return response;
         }
 
-        response.put("status", "success");
+        int n = requests.size();
+        String[] results = new String[n];
+
+        // group the item indexes by source, first appearance order
+        Map<String, List<Integer>> bySource = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            InteractionRequest r = requests.get(i);
+            if (r == null || r.sourceEmail == null || r.targetEmail == null) {
+                results[i] = "not_found";
+            } else if (!"like".equalsIgnoreCase(r.type) && !"friend".equalsIgnoreCase(r.type)) {
+                results[i] = "invalid_type";
+            } else {
+                bySource.computeIfAbsent(r.sourceEmail, k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        // resolve everyone once, targets repeat a lot in bulk data so they are cached too
+        Map<String, People> targets = new HashMap<>();
+        List<Integer> order = new ArrayList<>(n);
+        List<People[]> pairs = new ArrayList<>(n);
+        List<InteractionLog.Entry> entries = new ArrayList<>(n);
+        for (Map.Entry<String, List<Integer>> group : bySource.entrySet()) {
+            People source = database.get(group.getKey());
+            for (int i : group.getValue()) {
+                InteractionRequest r = requests.get(i);
+                People target = targets.computeIfAbsent(r.targetEmail, database::get);
+                if (source == null || target == null) {
+                    results[i] = "not_found";
+                } else if (source.getEmail().equalsIgnoreCase(target.getEmail())) {
+                    results[i] = "self";
+                } else {
+                    order.add(i);
+                    pairs.add(new People[] {source, target});
+                    entries.add("like".equalsIgnoreCase(r.type)
+                            ? InteractionLog.Entry.like(source.getEmail(), target.getEmail())
+                            : InteractionLog.Entry.friend(source.getEmail(), target.getEmail()));
+                }
+            }
+        }
+
+        int applied = 0;
+        int matches = 0;
+        try {
+            boolean[] matched = loggedAll(entries, () -> {
+                boolean[] out = new boolean[pairs.size()];
+                LikeMatcher matcher = null;
+                for (int k = 0; k < out.length; k++) {
+                    People[] pair = pairs.get(k);
+                    // pairs are grouped by source, so a new matcher only when the source changes
+                    if (matcher == null || pairs.get(k - 1)[0] != pair[0]) matcher = new LikeMatcher(pair[0]);
+                    out[k] = entries.get(k).kind == InteractionLog.Kind.LIKE
+                            ? matcher.RomanticLiker(pair[1])
+                            : matcher.FriendLiker(pair[1]);
+                }
+                return out;
+            });
+            for (int k = 0; k < matched.length; k++) {
+                results[order.get(k)] = matched[k] ? "match" : "ok";
+                if (matched[k]) {
+                    matches++;
+                    events.publishPair(pairs.get(k)[0], pairs.get(k)[1], kindOf(entries.get(k)));
+                }
+            }
+            applied = matched.length;
+        } catch (IOException e) {
+            for (int i : order) results[i] = "log_failed";
+            response.put("message", "Could not save the interactions: " + e.getMessage());
+        }
+
+        response.put("status", applied == n ? "success" : applied == 0 ? "error" : "partial");
+        response.put("applied", applied);
+        response.put("matches", matches);
+        response.put("failed", n - applied);
+        response.put("results", results);
         return response;
     }
 
+    private static MatchEventHub.Kind kindOf(InteractionLog.Entry entry) {
+        return entry.kind == InteractionLog.Kind.LIKE ? MatchEventHub.Kind.MATCH : MatchEventHub.Kind.FRIEND_MATCH;
+    }
+
+    /**
+     * Server-Sent Events stream of new matches, friend matches and recommendations for one
+     * user, so the UI can reload /api/lists only when something changed.
+     * Events: "ready" once, then "match" / "friend_match" / "recommendation" with
+     * {email, name, mbti} of the other person, and "resync" if the client fell too far behind
+     * and missed some (reload the lists once). The stream stays open until the client leaves.
+     */
+    @GetMapping(value = "/api/events", produces = "text/event-stream")
+    public SseEmitter matchEvents(@RequestParam String email) throws IOException {
+        People me = database.get(email);
+        if (me == null) {
+            SseEmitter emitter = new SseEmitter();
+            emitter.send(SseEmitter.event().name("error").data("{\"message\":\"User not found\"}"));
+            emitter.complete();
+            return emitter;
+        }
+        return events.subscribe(me.getEmail());
+    }
+
     /**
      * "Find Me A Match" endpoint.
      * Requirement: recommended matches must appear in BOTH users' pages.
@@ -198,23 +578,89 @@ public class WebController {
 
         if (match == null) return null;
 
-        // Save to BOTH users so it shows on either profile's "Recommended" list
-        addRecommendation(email, match.getEmail());
-        addRecommendation(match.getEmail(), email);
+        // Save to BOTH users so it shows on either profile's "Recommended" list,
+        // anyone who has /api/events open hears about a new one right away
+        if (addRecommendation(email, match.getEmail()) && me != null) {
+            events.publish(me.getEmail(), MatchEventHub.Kind.RECOMMENDATION, match);
+        }
+        if (addRecommendation(match.getEmail(), email) && me != null) {
+            events.publish(match.getEmail(), MatchEventHub.Kind.RECOMMENDATION, me);
+        }
 
         // Store a readable history string (Editor View "Global Matches")
         if (me != null) {
             String record = me.getName() + " (" + me.getMbtiRaw() + ") recommended with "
                     + match.getName() + " (" + match.getMbtiRaw() + ")";
-            if (!globalMatchHistory.contains(record)) globalMatchHistory.add(record);
+            globalMatchHistory.add(record);
         }
 
         return new PeopleDto(match, false);
     }
 
+    /**
+     * A page of the best mutually compatible candidates, ranked by MBTI score in both
+     * directions and then popularity. Pass nextCursor back as cursor to get the next page.
+     * Nothing is added to the recommended lists, this is for browsing / prefetching.
+     */
+    @GetMapping("/api/match/top")
+    public Map<String, Object> topMatches(@RequestParam String email,
+                                          @RequestParam(defaultValue = "10") int limit,
+                                          @RequestParam(required = false) String cursor) {
+        Map<String, Object> response = new HashMap<>();
+        if (database.get(email) == null) {
+            response.put("status", "error");
+            response.put("message", "User not found");
+            return response;
+        }
+
+        MatchPage page;
+        try {
+            page = database.topMatches(email, Math.min(limit, 100), cursor);
+        } catch (IllegalArgumentException e) {
+            response.put("status", "error");
+            response.put("message", e.getMessage());
+            return response;
+        }
+
+        response.put("status", "success");
+        response.put("matches", toDtos(page.people));
+        response.put("nextCursor", page.nextCursor);
+        return response;
+    }
+
     @GetMapping("/api/admin/matches")
     public List<String> getGlobalMatchHistory() {
-        return globalMatchHistory;
+        synchronized (globalMatchHistory) {
+            return new ArrayList<>(globalMatchHistory);
+        }
+    }
+
+    /**
+     * Probe length histogram, max chain and load factor of the live storage. With compare=true
+     * every email is also loaded into a scratch quadratic and Robin Hood table once per hash
+     * strategy, so clustering on the real data can be compared before switching.
+     */
+    @GetMapping("/api/admin/hash-stats")
+    public Map<String, Object> hashStats(@RequestParam(defaultValue = "false") boolean compare) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("current", database.probeStats());
+        if (compare) {
+            List<People> people = database.getAllPeople();
+            List<ProbeStats> candidates = new ArrayList<>();
+            for (EmailHashStrategy strategy : EmailHashStrategy.builtins()) {
+                // storage only (insertEntry), the people aren't registered anywhere else
+                PeopleHashTable quadratic = new PeopleHashTable(11, strategy);
+                RobinHoodPeopleTable robinHood = new RobinHoodPeopleTable(people.size(), strategy);
+                for (People p : people) {
+                    quadratic.insertEntry(p);
+                    robinHood.insertEntry(p);
+                }
+                candidates.add(quadratic.probeStats());
+                candidates.add(robinHood.probeStats());
+            }
+            response.put("compare", candidates);
+        }
+        return response;
     }
 
     @GetMapping("/api/lists")
@@ -228,11 +674,12 @@ public class WebController {
             return response;
         }
 
+        // the relationship graph hands back People by dense id, no email lookups needed
         response.put("status", "success");
-        response.put("liked", resolveToDtos(me.getLikedEmails()));
-        response.put("friendLiked", resolveToDtos(me.getFriendEmails()));
-        response.put("matches", resolveToDtos(me.getLikedEmailsMatch()));
-        response.put("friendMatches", resolveToDtos(me.getFriendEmailsMatch()));
+        response.put("liked", toDtos(me.getLikedPeople()));
+        response.put("friendLiked", toDtos(me.getFriendLikedPeople()));
+        response.put("matches", toDtos(me.getLikeMatchPeople()));
+        response.put("friendMatches", toDtos(me.getFriendMatchPeople()));
 
         // NEW: recommended list (stored in controller)
         response.put("recommended", resolveToDtos(getRecommendations(me.getEmail())));
@@ -240,7 +687,13 @@ public class WebController {
         return response;
     }
 
-    private List<PeopleDto> resolveToDtos(List<String> emails) {
+    private List<PeopleDto> toDtos(List<People> people) {
+        List<PeopleDto> out = new ArrayList<>(people.size());
+        for (People p : people) out.add(new PeopleDto(p, false));
+        return out;
+    }
+
+    private List<PeopleDto> resolveToDtos(Collection<String> emails) {
         List<PeopleDto> out = new ArrayList<>();
         if (emails == null) return out;
 
@@ -251,18 +704,28 @@ public class WebController {
         return out;
     }
 
+    /**
+     * Autocomplete suggestions while typing. Only the `limit` most popular hits are returned
+     * so a one letter prefix doesn't send back the whole database.
+     */
     @GetMapping("/api/autocomplete")
-    public List<PeopleDto> autocomplete(@RequestParam String prefix) {
+    public List<PeopleDto> autocomplete(@RequestParam String prefix,
+                                        @RequestParam(defaultValue = "10") int limit) {
         List<PeopleDto> displayList = new ArrayList<>();
-        ArrayList<People> matches = database.autocompleteByPopularity(prefix);
+        ArrayList<People> matches = database.autocompleteByPopularity(prefix, limit);
         for (People p : matches) displayList.add(new PeopleDto(p, false));
         return displayList;
     }
 
+    /**
+     * Name search ranked by MBTI compatibility, one page at a time (offset = results to skip).
+     */
     @GetMapping("/api/search")
-    public List<PeopleDto> search(@RequestParam String email, @RequestParam String name) {
+    public List<PeopleDto> search(@RequestParam String email, @RequestParam String name,
+                                  @RequestParam(defaultValue = "20") int limit,
+                                  @RequestParam(defaultValue = "0") int offset) {
         List<PeopleDto> displayList = new ArrayList<>();
-        ArrayList<People> matches = database.searchByNameRankedByMbti(name, email);
+        ArrayList<People> matches = database.searchByNameRankedByMbti(name, email, Math.min(limit, 100), offset);
         for (People p : matches) displayList.add(new PeopleDto(p, false));
         return displayList;
     }
@@ -307,6 +770,7 @@ public class WebController {
             this.genderPreferences = (prefs != null && !prefs.isEmpty()) ? String.join(", ", prefs) : "All";
 
             if (includePrivateLists) {
+                // these come back as fresh lists built from the relationship graph
                 this.likedEmails = p.getLikedEmails();
                 this.friendEmails = p.getFriendEmails();
                 this.matches = p.getLikedEmailsMatch();
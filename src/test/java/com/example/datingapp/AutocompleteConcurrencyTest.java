@@ -0,0 +1,92 @@
+package com.example.datingapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * autocomplete ranks by likedByCount while likes keep changing it, the ranking has to
+ * stay a valid total order (no "Comparison method violates its general contract!")
+ * @author Taha
+ */
+class AutocompleteConcurrencyTest {
+
+    private static final int PEOPLE = 2000;
+
+    static Stream<Supplier<AbstractMatchDatabase>> backends() {
+        return Stream.of(PeopleHashTable::new, RobinHoodPeopleTable::new, ConcurrentPeopleTable::new);
+    }
+
+    @ParameterizedTest
+    @MethodSource("backends")
+    void autocompleteSurvivesALikeStorm(Supplier<AbstractMatchDatabase> backend) throws Exception {
+        AbstractMatchDatabase db = backend.get();
+        People[] people = new People[PEOPLE];
+        for (int i = 0; i < PEOPLE; i++) {
+            people[i] = new People("Ann Person" + i, "ann" + i + "@mymail.pomona.edu");
+            db.insert(people[i]);
+        }
+
+        AtomicBoolean done = new AtomicBoolean(false);
+        ExecutorService pool = Executors.newFixedThreadPool(6);
+        List<Future<?>> likers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            likers.add(pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (!done.get()) {
+                    People a = people[random.nextInt(PEOPLE)];
+                    new LikeMatcher(a).RomanticLiker(people[random.nextInt(PEOPLE)]);
+                }
+            }));
+        }
+
+        List<Future<Integer>> readers = new ArrayList<>();
+        for (int t = 0; t < 2; t++) {
+            int limit = t == 0 ? Integer.MAX_VALUE : 10;
+            readers.add(pool.submit(() -> {
+                for (int round = 0; round < 200; round++) {
+                    ArrayList<People> hits = db.autocompleteByPopularity("ann", limit);
+                    assertEquals(Math.min(limit, PEOPLE), hits.size());
+                    assertEquals(hits.size(), new HashSet<>(hits).size(), "a hit came back twice");
+                }
+                return limit;
+            }));
+        }
+
+        try {
+            for (Future<Integer> reader : readers) reader.get(60, TimeUnit.SECONDS);
+        } finally {
+            done.set(true);
+            for (Future<?> liker : likers) liker.get(60, TimeUnit.SECONDS);
+            pool.shutdown();
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("backends")
+    void tiesGoToTheLowerId(Supplier<AbstractMatchDatabase> backend) {
+        AbstractMatchDatabase db = backend.get();
+        for (int i = 0; i < 50; i++) db.insert(new People("Bo Tie" + i, "bo" + i + "@hmc.edu"));
+        People popular = db.get("bo30@hmc.edu");
+        new LikeMatcher(db.get("bo1@hmc.edu")).RomanticLiker(popular);
+
+        ArrayList<People> hits = db.autocompleteByPopularity("bo", 5);
+        assertEquals(popular, hits.get(0));
+        for (int i = 2; i < hits.size(); i++) {
+            assertTrue(hits.get(i - 1).getId() < hits.get(i).getId(), "equal popularity should be in id order");
+        }
+    }
+}
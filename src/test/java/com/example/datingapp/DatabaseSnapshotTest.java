@@ -0,0 +1,106 @@
+package com.example.datingapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * snapshots have to bring back exactly what was saved, also while likes keep coming in
+ * @author Taha
+ */
+class DatabaseSnapshotTest {
+
+    private static final String[] TYPES = {"ENFJ", "INTP", "ISTJ", "ESFP", "NA"};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripRestoresPeopleRelationsAndExtras() throws Exception {
+        ConcurrentPeopleTable db = new ConcurrentPeopleTable();
+        db.loadPeopleFromCSV("users.csv");
+        db.loadRelationships("relationshipsNew.csv");
+        // removed people leave gaps in the ids, the snapshot renumbers them away
+        for (int i = 0; i < 2000; i += 7) db.remove(db.getAllPeople().get(0).getEmail());
+
+        Map<String, List<String>> recommendations = new LinkedHashMap<>();
+        recommendations.put("a@hmc.edu", List.of("b@hmc.edu", "c@hmc.edu"));
+        recommendations.put("b@hmc.edu", List.of("a@hmc.edu"));
+        List<String> history = List.of("A (ENFJ) recommended with B (INTP)");
+        String file = dir.resolve("db.snapshot").toString();
+        db.saveSnapshot(file, new DatabaseSnapshot.Extras(recommendations, history));
+
+        for (AbstractMatchDatabase loaded : List.of(new ConcurrentPeopleTable(), new RobinHoodPeopleTable(), new PeopleHashTable())) {
+            DatabaseSnapshot.Extras extras = loaded.loadSnapshot(file);
+            assertEquals(DatabaseState.describe(db), DatabaseState.describe(loaded));
+            assertEquals(recommendations, extras.recommendations);
+            assertEquals(history, extras.matchHistory);
+
+            // the restored graph keeps working
+            People a = loaded.getAllPeople().get(0);
+            People b = loaded.getAllPeople().get(1);
+            new LikeMatcher(a).FriendLiker(b);
+            new LikeMatcher(b).FriendLiker(a);
+            assertEquals(true, a.isFriendMatchedWith(b));
+        }
+    }
+
+    @Test
+    void snapshotIsAConsistentCutUnderConcurrentLikes() throws Exception {
+        ConcurrentPeopleTable db = new ConcurrentPeopleTable();
+        int n = 300;
+        People[] people = new People[n];
+        for (int i = 0; i < n; i++) {
+            people[i] = new People("Person " + i, "p" + i + "@mymail.pomona.edu");
+            people[i].setMbtiSelfType(TYPES[i % TYPES.length]);
+            db.insert(people[i]);
+        }
+
+        AtomicBoolean done = new AtomicBoolean(false);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> likers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            likers.add(pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (!done.get()) {
+                    LikeMatcher matcher = new LikeMatcher(people[random.nextInt(n)]);
+                    People target = people[random.nextInt(n)];
+                    if (random.nextBoolean()) matcher.RomanticLiker(target);
+                    else matcher.FriendLiker(target);
+                }
+            }));
+        }
+
+        List<String> files = new ArrayList<>();
+        try {
+            for (int i = 0; i < 60; i++) {
+                String file = dir.resolve("cut" + i + ".snapshot").toString();
+                db.saveSnapshot(file, null);
+                files.add(file);
+            }
+        } finally {
+            done.set(true);
+            for (Future<?> liker : likers) liker.get(60, TimeUnit.SECONDS);
+            pool.shutdown();
+        }
+
+        for (String file : files) {
+            ConcurrentPeopleTable loaded = new ConcurrentPeopleTable();
+            loaded.loadSnapshot(file);
+            DatabaseState.assertLikesAddUp(loaded);
+        }
+        DatabaseState.assertLikesAddUp(db);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.datingapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * test helpers that look at a whole database: a canonical text dump to compare two
+ * databases with, and the invariants every finished like leaves behind
+ * @author Taha
+ */
+final class DatabaseState {
+
+    private DatabaseState() {}
+
+    /**
+     * everyone sorted by email with their profile, counters and sorted relation lists,
+     * two databases in the same state give the same string whatever their ids or backend
+     */
+    static String describe(AbstractMatchDatabase db) {
+        ArrayList<People> people = db.getAllPeople();
+        people.sort(Comparator.comparing(People::getEmail));
+        StringBuilder sb = new StringBuilder();
+        for (People p : people) {
+            sb.append(p.getEmail()).append(' ').append(p.getName()).append(' ').append(p.getMbtiRaw())
+              .append(' ').append(p.getGender()).append(' ').append(p.getGenderPreferences())
+              .append(" likedBy=").append(p.getLikedByCount())
+              .append(" valid=").append(p.getValidLikes())
+              .append(" stats=").append(p.getMbtiStats())
+              .append("\n  likes ").append(sorted(p.getLikedEmails()))
+              .append("\n  friends ").append(sorted(p.getFriendEmails()))
+              .append("\n  matches ").append(sorted(p.getLikedEmailsMatch()))
+              .append("\n  friendMatches ").append(sorted(p.getFriendEmailsMatch()))
+              .append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * checks what RomanticLiker / FriendLiker guarantee once every like is finished, for a
+     * database that started without relationships:
+     * - two people never like each other without being matched, matches go both ways
+     * - likedByCount is every romantic like received (pending or turned into a match)
+     * - validLikes and the mbti counters add up over everyone liked who has a type
+     */
+    static void assertLikesAddUp(AbstractMatchDatabase db) {
+        Map<People, Integer> received = new HashMap<>();
+        for (People p : db.getAllPeople()) {
+            int valid = 0;
+            int[] axes = new int[4];
+            for (People q : p.getLikedPeople()) {
+                assertFalse(q.hasLiked(p), p.getEmail() + " and " + q.getEmail() + " like each other but didn't match");
+                assertFalse(p.isLikeMatchedWith(q), p.getEmail() + " likes a match");
+            }
+            for (People q : p.getFriendLikedPeople()) {
+                assertFalse(q.hasFriendLiked(p), p.getEmail() + " and " + q.getEmail() + " friend like each other but didn't match");
+            }
+            for (People q : p.getLikeMatchPeople()) {
+                assertTrue(q.isLikeMatchedWith(p), "one sided match " + p.getEmail() + " -> " + q.getEmail());
+            }
+            for (People q : p.getFriendMatchPeople()) {
+                assertTrue(q.isFriendMatchedWith(p), "one sided friend match " + p.getEmail() + " -> " + q.getEmail());
+            }
+
+            List<People> liked = new ArrayList<>(p.getLikedPeople());
+            liked.addAll(p.getLikeMatchPeople());
+            for (People q : liked) {
+                received.merge(q, 1, Integer::sum);
+                if (!q.hasMbtiType()) continue;
+                valid++;
+                for (int k = 0; k < 4; k++) axes[k] += ((q.getMbtiSelfMask() >> k) & 1) == 1 ? 1 : -1;
+            }
+            assertEquals(valid, p.getValidLikes(), "validLikes of " + p.getEmail());
+            assertEquals(List.of(axes[0], axes[1], axes[2], axes[3]), p.getMbtiStats(), "mbti stats of " + p.getEmail());
+        }
+        for (People p : db.getAllPeople()) {
+            assertEquals((int) received.getOrDefault(p, 0), p.getLikedByCount(), "likedByCount of " + p.getEmail());
+        }
+    }
+
+    private static List<String> sorted(List<String> emails) {
+        ArrayList<String> out = new ArrayList<>(emails);
+        Collections.sort(out);
+        return out;
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.datingapp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * the interaction log has to give back what was written, stop cleanly at a broken tail and,
+ * together with the compaction baseline, rebuild the live state
+ * @author Taha
+ */
+class InteractionLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replayStopsAtATornRecord() throws Exception {
+        Path logDir = dir.resolve("log");
+        try (InteractionLog log = new InteractionLog(logDir)) {
+            for (int i = 0; i < 5; i++) log.append(InteractionLog.Entry.like("a" + i + "@hmc.edu", "b@hmc.edu"), () -> null);
+        }
+        Path segment = onlySegment(logDir);
+        // a crash in the middle of the last write
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        // a new log starts a fresh segment after the torn one, replay picks it up again
+        try (InteractionLog log = new InteractionLog(logDir)) {
+            log.append(InteractionLog.Entry.register("Cy", "c@hmc.edu", "INTP", null, "men"), () -> null);
+            log.append(InteractionLog.Entry.friend("c@hmc.edu", "b@hmc.edu"), () -> null);
+        }
+
+        List<InteractionLog.Entry> replayed = new ArrayList<>();
+        assertEquals(6, InteractionLog.replay(logDir, replayed::add));
+        for (int i = 0; i < 4; i++) {
+            assertEquals(InteractionLog.Kind.LIKE, replayed.get(i).kind);
+            assertArrayEquals(new String[] {"a" + i + "@hmc.edu", "b@hmc.edu"}, replayed.get(i).fields);
+        }
+        assertEquals(InteractionLog.Kind.REGISTER, replayed.get(4).kind);
+        assertArrayEquals(new String[] {"Cy", "c@hmc.edu", "INTP", null, "men"}, replayed.get(4).fields);
+        assertArrayEquals(new String[] {"c@hmc.edu", "b@hmc.edu"}, replayed.get(5).fields);
+    }
+
+    @Test
+    void replayStopsAtACorruptRecord() throws Exception {
+        Path logDir = dir.resolve("log");
+        try (InteractionLog log = new InteractionLog(logDir)) {
+            for (int i = 0; i < 3; i++) log.append(InteractionLog.Entry.like("a" + i + "@hmc.edu", "b@hmc.edu"), () -> null);
+        }
+        Path segment = onlySegment(logDir);
+        // flip a byte in the last record, its crc no longer matches
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(file.length() - 2);
+            int b = file.read();
+            file.seek(file.length() - 2);
+            file.write(b ^ 0xFF);
+        }
+        assertEquals(2, InteractionLog.replay(logDir, e -> {}));
+    }
+
+    @Test
+    void appendsWaitWhileTheBaselineIsWritten() throws Exception {
+        try (InteractionLog log = new InteractionLog(dir.resolve("log"))) {
+            AtomicBoolean applied = new AtomicBoolean(false);
+            CompletableFuture<Void> append = new CompletableFuture<>();
+            log.compact(() -> {
+                Thread t = new Thread(() -> {
+                    try {
+                        log.append(InteractionLog.Entry.like("a@hmc.edu", "b@hmc.edu"), () -> applied.getAndSet(true));
+                        append.complete(null);
+                    } catch (IOException e) {
+                        append.completeExceptionally(e);
+                    }
+                });
+                t.start();
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                // the record belongs after this baseline, it can't be applied yet
+                assertFalse(applied.get(), "an append was applied while the baseline was being written");
+            });
+            append.get(10, TimeUnit.SECONDS);
+            assertEquals(true, applied.get());
+        }
+    }
+
+    @Test
+    void baselinePlusReplayEqualsLiveStateUnderConcurrentLikes() throws Exception {
+        ConcurrentPeopleTable live = new ConcurrentPeopleTable();
+        String[] types = {"ENFJ", "INTP", "ISTJ", "ESFP", "NA"};
+        int n = 200;
+        for (int i = 0; i < n; i++) {
+            People p = new People("Person " + i, "p" + i + "@hmc.edu");
+            p.setMbtiSelfType(types[i % types.length]);
+            live.insert(p);
+        }
+        Path logDir = dir.resolve("log");
+        String baseline = dir.resolve("baseline.snapshot").toString();
+        live.saveSnapshot(baseline, null);
+
+        InteractionLog log = new InteractionLog(logDir);
+        AtomicBoolean done = new AtomicBoolean(false);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> likers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            likers.add(pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (!done.get()) {
+                    String a = "p" + random.nextInt(n) + "@hmc.edu";
+                    String b = "p" + random.nextInt(n) + "@hmc.edu";
+                    InteractionLog.Entry entry = random.nextBoolean()
+                            ? InteractionLog.Entry.like(a, b) : InteractionLog.Entry.friend(a, b);
+                    log.append(entry, () -> apply(live, entry));
+                }
+                return null;
+            }));
+        }
+        try {
+            for (int i = 0; i < 20; i++) {
+                Thread.sleep(10);
+                log.compact(() -> live.saveSnapshot(baseline, null));
+            }
+        } finally {
+            done.set(true);
+            for (Future<?> liker : likers) liker.get(60, TimeUnit.SECONDS);
+            pool.shutdown();
+            log.close();
+        }
+
+        ConcurrentPeopleTable restored = new ConcurrentPeopleTable();
+        restored.loadSnapshot(baseline);
+        InteractionLog.replay(logDir, e -> apply(restored, e));
+        assertEquals(DatabaseState.describe(live), DatabaseState.describe(restored));
+        DatabaseState.assertLikesAddUp(restored);
+    }
+
+    /**
+     * what the web controller does with a logged like / friend like
+     */
+    private static boolean apply(AbstractMatchDatabase db, InteractionLog.Entry entry) {
+        People source = db.get(entry.fields[0]);
+        People target = db.get(entry.fields[1]);
+        if (source == null || target == null) return false;
+        LikeMatcher matcher = new LikeMatcher(source);
+        return entry.kind == InteractionLog.Kind.LIKE ? matcher.RomanticLiker(target) : matcher.FriendLiker(target);
+    }
+
+    private static Path onlySegment(Path logDir) throws IOException {
+        try (Stream<Path> files = Files.list(logDir)) {
+            List<Path> segments = files.filter(f -> Files.isRegularFile(f)).toList();
+            assertEquals(1, segments.size());
+            return segments.get(0);
+        }
+    }
+}
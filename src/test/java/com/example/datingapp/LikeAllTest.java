@@ -0,0 +1,95 @@
+package com.example.datingapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.BufferedReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * LikeMatcher.likeAll has to end up exactly where calling RomanticLiker / FriendLiker for
+ * every edge in order ends up: same likes, matches, popularity and mbti counters
+ * @author Aysegul
+ */
+class LikeAllTest {
+
+    @Test
+    void bulkLoadOfTheRelationshipsFileEqualsOneLikeAtATime() throws Exception {
+        ConcurrentPeopleTable bulk = new ConcurrentPeopleTable();
+        bulk.loadPeopleFromCSV("users.csv");
+        bulk.loadRelationships("relationshipsNew.csv");
+
+        ConcurrentPeopleTable oneByOne = new ConcurrentPeopleTable();
+        oneByOne.loadPeopleFromCSV("users.csv");
+        try (BufferedReader in = Files.newBufferedReader(Path.of("relationshipsNew.csv"))) {
+            in.readLine(); // header
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] row = line.split(",");
+                People source = oneByOne.get(row[0].trim());
+                People target = oneByOne.get(row[2].trim());
+                if (source == null || target == null) continue;
+                if (row[1].trim().equalsIgnoreCase("like")) new LikeMatcher(source).RomanticLiker(target);
+                else if (row[1].trim().equalsIgnoreCase("friend")) new LikeMatcher(source).FriendLiker(target);
+            }
+        }
+
+        assertEquals(DatabaseState.describe(oneByOne), DatabaseState.describe(bulk));
+    }
+
+    @Test
+    void randomBatchesWithRepeatsSelfLikesAndMutualPairsMatchSequentialReplay() {
+        Random random = new Random(7);
+        for (int round = 0; round < 5; round++) {
+            ConcurrentPeopleTable bulk = new ConcurrentPeopleTable();
+            ConcurrentPeopleTable oneByOne = new ConcurrentPeopleTable();
+            bulk.loadPeopleFromCSV("users.csv");
+            oneByOne.loadPeopleFromCSV("users.csv");
+            List<People> people = oneByOne.getAllPeople();
+            int n = 60; // few people so repeats and mutual likes are common
+
+            // several batches so likes already in the graph (from earlier batches) are hit too
+            for (int batch = 0; batch < 4; batch++) {
+                for (boolean romantic : new boolean[] {true, false}) {
+                    int count = 300;
+                    int[] from = new int[count];
+                    int[] to = new int[count];
+                    for (int i = 0; i < count; i++) {
+                        People a = people.get(random.nextInt(n));
+                        People b = random.nextInt(10) == 0 ? a : people.get(random.nextInt(n));
+                        LikeMatcher matcher = new LikeMatcher(a);
+                        if (romantic) matcher.RomanticLiker(b);
+                        else matcher.FriendLiker(b);
+                        from[i] = bulk.get(a.getEmail()).getId();
+                        to[i] = bulk.get(b.getEmail()).getId();
+                    }
+                    LikeMatcher.likeAll(bulk.getRelationshipGraph(), from, to, count, romantic);
+                }
+                assertEquals(DatabaseState.describe(oneByOne), DatabaseState.describe(bulk), "round " + round + " batch " + batch);
+            }
+            DatabaseState.assertLikesAddUp(bulk);
+        }
+    }
+
+    @Test
+    void likeAllCountsNewMatches() {
+        ConcurrentPeopleTable db = new ConcurrentPeopleTable();
+        List<People> people = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            People p = new People("P" + i, "p" + i + "@hmc.edu");
+            db.insert(p);
+            people.add(p);
+        }
+        int[] ids = people.stream().mapToInt(People::getId).toArray();
+        // 0<->1 inside the batch, 2->3 now and 3->2 in the next batch, 0->0 ignored
+        assertEquals(1, LikeMatcher.likeAll(db.getRelationshipGraph(),
+                new int[] {ids[0], ids[1], ids[2], ids[0]}, new int[] {ids[1], ids[0], ids[3], ids[0]}, 4, true));
+        assertEquals(1, LikeMatcher.likeAll(db.getRelationshipGraph(), new int[] {ids[3]}, new int[] {ids[2]}, 1, true));
+        assertEquals(true, people.get(2).isLikeMatchedWith(people.get(3)));
+        assertEquals(2, people.get(0).getLikeMatchPeople().size() + people.get(1).getLikeMatchPeople().size());
+    }
+}
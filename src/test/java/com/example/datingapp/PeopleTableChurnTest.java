@@ -0,0 +1,82 @@
+package com.example.datingapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * random inserts, removes and lookups on every storage backend, checked against a HashMap.
+ * the phases grow the table, empty most of it (shrinking, tombstones, backward shifts) and
+ * hover around a fixed size so every rehash path runs
+ * @author Taha
+ */
+class PeopleTableChurnTest {
+
+    static Stream<Supplier<AbstractMatchDatabase>> backends() {
+        return Stream.of(PeopleHashTable::new, RobinHoodPeopleTable::new, ConcurrentPeopleTable::new,
+                () -> new PeopleHashTable(11, EmailHashStrategy.MURMUR3),
+                () -> new RobinHoodPeopleTable(0, EmailHashStrategy.POLYNOMIAL_27));
+    }
+
+    @ParameterizedTest
+    @MethodSource("backends")
+    void churnMatchesAHashMap(Supplier<AbstractMatchDatabase> backend) {
+        AbstractMatchDatabase table = backend.get();
+        Map<String, People> oracle = new HashMap<>();
+        Random random = new Random(42);
+
+        // {operations, key space, chance to insert out of 10}
+        int[][] phases = {{20_000, 5_000, 8}, {30_000, 5_000, 1}, {40_000, 400, 5}, {20_000, 20_000, 7}, {40_000, 20_000, 0}};
+        for (int[] phase : phases) {
+            for (int i = 0; i < phase[0]; i++) {
+                String email = "user" + random.nextInt(phase[1]) + "@mymail.pomona.edu";
+                int op = random.nextInt(10);
+                if (op < phase[2]) {
+                    People p = new People("User " + i, email);
+                    table.insert(p);
+                    oracle.putIfAbsent(email, p); // the first person with an email stays
+                } else {
+                    table.remove(email);
+                    oracle.remove(email);
+                }
+                String probe = "user" + random.nextInt(phase[1]) + "@mymail.pomona.edu";
+                assertSame(oracle.get(probe), table.get(probe), probe);
+                assertEquals(oracle.containsKey(probe), table.contains(probe), probe);
+            }
+            assertSameContents(oracle, table);
+        }
+
+        // empty it out completely, then make sure it still takes people afterwards
+        for (String email : new ArrayList<>(oracle.keySet())) {
+            table.remove(email);
+            oracle.remove(email);
+        }
+        assertSameContents(oracle, table);
+        People last = new People("Last", "last@hmc.edu");
+        table.insert(last);
+        assertSame(last, table.get("last@hmc.edu"));
+        assertEquals(1, table.getAllPeople().size());
+    }
+
+    private static void assertSameContents(Map<String, People> oracle, AbstractMatchDatabase table) {
+        assertEquals(new HashSet<>(oracle.values()), new HashSet<>(table.getAllPeople()));
+        assertEquals(oracle.size(), table.loadStats().entries);
+        assertEquals(oracle.size(), table.probeStats().entries);
+        for (Map.Entry<String, People> e : oracle.entrySet()) {
+            assertSame(e.getValue(), table.get(e.getKey()));
+        }
+        // a copy of the email string has to find them too, not just the same reference
+        for (String email : oracle.keySet()) {
+            assertSame(oracle.get(email), table.get(new String(email)));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.datingapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * ids of removed people go back into use without anyone inheriting their likes, and people
+ * outside a database don't collect relations anywhere
+ * @author Taha
+ */
+class RelationshipGraphTest {
+
+    static Stream<Supplier<AbstractMatchDatabase>> backends() {
+        return Stream.of(PeopleHashTable::new, RobinHoodPeopleTable::new, ConcurrentPeopleTable::new);
+    }
+
+    @ParameterizedTest
+    @MethodSource("backends")
+    void idsStayBoundedUnderRegisterRemoveChurn(Supplier<AbstractMatchDatabase> backend) {
+        AbstractMatchDatabase db = backend.get();
+        List<People> live = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            People p = new People("Person " + i, "p" + i + "@hmc.edu");
+            db.insert(p);
+            live.add(p);
+        }
+        Random random = new Random(3);
+        for (int i = 0; i < 200_000; i++) {
+            People gone = live.remove(random.nextInt(live.size()));
+            db.remove(gone.getEmail());
+            People p = new People("Person " + i, "q" + i + "@hmc.edu");
+            db.insert(p);
+            live.add(p);
+            new LikeMatcher(p).RomanticLiker(live.get(random.nextInt(live.size())));
+        }
+
+        int idCount = db.getRelationshipGraph().idCount();
+        assertTrue(idCount < 2_000, "ids handed out: " + idCount);
+        for (People p : live) {
+            assertSame(p, db.getRelationshipGraph().person(p.getId()));
+        }
+    }
+
+    @Test
+    void aReusedIdStartsWithoutTheOldLikes() {
+        ConcurrentPeopleTable db = new ConcurrentPeopleTable();
+        People a = new People("A", "a@hmc.edu");
+        People b = new People("B", "b@hmc.edu");
+        db.insert(a);
+        db.insert(b);
+        new LikeMatcher(a).RomanticLiker(b);
+        new LikeMatcher(b).FriendLiker(a);
+        int oldId = b.getId();
+
+        db.remove("b@hmc.edu");
+        assertEquals(-1, b.getId());
+        assertTrue(a.getLikedPeople().isEmpty());
+        assertTrue(b.getFriendLikedPeople().isEmpty());
+
+        // once the edges are compacted away the id goes to the next person
+        db.getRelationshipGraph().compact();
+        People c = new People("C", "c@hmc.edu");
+        db.insert(c);
+        assertEquals(oldId, c.getId());
+        assertEquals(2, db.getRelationshipGraph().idCount());
+        assertFalse(a.hasLiked(c));
+        assertFalse(c.hasFriendLiked(a));
+        assertTrue(c.getFriendLikedPeople().isEmpty());
+
+        // and the removed person can't reach c through it
+        assertFalse(b.hasFriendLiked(a));
+        assertFalse(new LikeMatcher(b).RomanticLiker(a));
+        assertTrue(a.getLikedPeople().isEmpty());
+        assertEquals(0, c.getLikedByCount());
+
+        assertFalse(new LikeMatcher(a).RomanticLiker(c));
+        assertEquals(List.of(c), a.getLikedPeople());
+    }
+
+    @Test
+    void removedIdsWaitForTheirEdgesToBeCompacted() {
+        ConcurrentPeopleTable db = new ConcurrentPeopleTable();
+        People a = new People("A", "a@hmc.edu");
+        People b = new People("B", "b@hmc.edu");
+        db.insert(a);
+        db.insert(b);
+        new LikeMatcher(a).RomanticLiker(b);
+        db.remove("b@hmc.edu");
+
+        // a still has the edge to b's old id in the graph, so it isn't handed out yet
+        People c = new People("C", "c@hmc.edu");
+        db.insert(c);
+        assertEquals(2, c.getId());
+        assertFalse(a.hasLiked(c));
+        assertNull(db.getRelationshipGraph().person(1));
+    }
+
+    @Test
+    void peopleOutsideADatabaseHaveNoRelations() {
+        People x = new People("X", "x@hmc.edu");
+        People y = new People("Y", "y@hmc.edu");
+        assertFalse(new LikeMatcher(x).RomanticLiker(y));
+        assertFalse(new LikeMatcher(y).RomanticLiker(x));
+        assertTrue(x.getLikedPeople().isEmpty() && x.getLikeMatchPeople().isEmpty());
+        assertEquals(0, y.getLikedByCount());
+
+        // liking someone who isn't in the database records nothing either
+        ConcurrentPeopleTable db = new ConcurrentPeopleTable();
+        db.insert(x);
+        assertFalse(new LikeMatcher(x).RomanticLiker(y));
+        assertTrue(x.getLikedPeople().isEmpty());
+    }
+}